@@ -0,0 +1,29 @@
+package dcs.jagermeistars.talesmaker.mixin;
+
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionVersions;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Bumps the section version on every block state write, whatever the update flags:
+ * doors, trapdoors and gates toggled without neighbour updates and command edits included.
+ */
+@Mixin(LevelChunk.class)
+public abstract class LevelChunkMixin {
+
+    @Inject(method = "setBlockState", at = @At("RETURN"))
+    private void talesmaker$bumpSectionVersion(BlockPos pos, BlockState state, boolean isMoving,
+                                               CallbackInfoReturnable<BlockState> cir) {
+        // A null return means the state didn't change
+        Level level = ((LevelChunk) (Object) this).getLevel();
+        if (cir.getReturnValue() != null && !level.isClientSide()) {
+            SectionVersions.bump(level, pos);
+        }
+    }
+}
@@ -2,13 +2,14 @@ package dcs.jagermeistars.talesmaker.pathfinding;
 
 import dcs.jagermeistars.talesmaker.entity.NpcEntity;
 import dcs.jagermeistars.talesmaker.pathfinding.calc.PathCalculator;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.PathWorkerPool;
 import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
-import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
 import dcs.jagermeistars.talesmaker.pathfinding.goals.*;
 import dcs.jagermeistars.talesmaker.pathfinding.movement.MovementContext;
 import dcs.jagermeistars.talesmaker.pathfinding.movement.MovementResult;
 import dcs.jagermeistars.talesmaker.pathfinding.movement.SmoothMovementExecutor;
-import dcs.jagermeistars.talesmaker.pathfinding.path.PathSmoother;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.RouteLegPath;
 import dcs.jagermeistars.talesmaker.pathfinding.path.SmoothPath;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.entity.Entity;
@@ -28,9 +29,6 @@ public class NpcPathingBehavior {
     private final SmoothMovementExecutor executor;
     private final PathingConfig config;
 
-    // World context for path smoothing
-    private final WorldContext smoothingContext;
-
     // Current goal
     @Nullable
     private Goal currentGoal;
@@ -46,6 +44,18 @@ public class NpcPathingBehavior {
     private int repathCooldown;
     private static final int REPATH_COOLDOWN_TICKS = 20; // 1 second
     private static final double REPATH_DISTANCE_SQ = 9.0; // 3 blocks
+    private static final int FRONTIER_RETRY_TICKS = 40; // 2 seconds
+    private static final int SPLICE_AHEAD = 2; // waypoints kept ahead of the NPC on repath
+
+    // Retry once unloaded terrain that cut the last search short may have loaded
+    private boolean atUnloadedFrontier;
+    private boolean frontierRetry;
+
+    // The current path is one leg of a long-range route
+    private boolean onRouteLeg;
+
+    // The current path is the start of one still being searched
+    private boolean walkingPrefix;
 
     // Exact target position (for precise positioning)
     @Nullable
@@ -64,7 +74,6 @@ public class NpcPathingBehavior {
         this.config = config;
         this.calculator = new PathCalculator(config);
         this.executor = new SmoothMovementExecutor();
-        this.smoothingContext = new WorldContext(config);
         this.active = false;
     }
 
@@ -97,6 +106,21 @@ public class NpcPathingBehavior {
                 .canClimb(config.canClimb())
                 .canOpenDoors(config.canOpenDoors())
                 .canParkour(config.canParkour())
+                .lazyCapture(config.isLazyCapture())
+                .retryAtUnloaded(config.isRetryAtUnloaded())
+                .hierarchical(config.isHierarchical())
+                .maxRouteRange(config.getMaxRouteRange())
+                .incrementalFollow(config.isIncrementalFollow())
+                .sharedFollowField(config.isSharedFollowField())
+                .sharedPathCache(config.isSharedPathCache())
+                .jumpPointSearch(config.isJumpPointSearch())
+                .heuristicWeight(config.getHeuristicWeight())
+                .heuristicWeightStep(config.getHeuristicWeightStep())
+                .anytimeRefineMs(config.getAnytimeRefineMs())
+                .anyAngleSearch(config.isAnyAngleSearch())
+                .prefixNodes(config.getPrefixNodes())
+                .bidirectional(config.isBidirectional())
+                .landmarkHeuristics(config.isLandmarkHeuristics())
                 .build();
     }
 
@@ -123,7 +147,12 @@ public class NpcPathingBehavior {
 
             switch (result) {
                 case SUCCESS:
-                    onPathComplete();
+                    if (walkingPrefix) {
+                        // End of the prefix - wait here for the rest of the path
+                        state = "calculating";
+                    } else {
+                        onPathComplete();
+                    }
                     break;
                 case FAILED:
                     onPathFailed();
@@ -149,6 +178,13 @@ public class NpcPathingBehavior {
             return;
         }
 
+        // Retry a search that stopped at unloaded chunks
+        if (frontierRetry && currentGoal != null) {
+            frontierRetry = false;
+            requestPath(currentGoal);
+            return;
+        }
+
         // Check follow goal - target might have moved
         if (followGoal != null && followGoal.isTargetValid()) {
             BlockPos targetPos = followGoal.getTargetPosition();
@@ -162,6 +198,7 @@ public class NpcPathingBehavior {
         if (executor.isFailed()) {
             // Try to repath
             if (currentGoal != null) {
+                forgetPatrolLeg();
                 requestPath(currentGoal);
             }
         }
@@ -184,6 +221,13 @@ public class NpcPathingBehavior {
     private void onPathComplete() {
         state = "idle";
 
+        // Route leg walked - plan the next leg towards the same goal
+        if (onRouteLeg && currentGoal != null) {
+            onRouteLeg = false;
+            requestPath(currentGoal);
+            return;
+        }
+
         // Handle dynamic goals
         if (patrolGoal != null) {
             // Advance to next waypoint and continue
@@ -195,6 +239,10 @@ public class NpcPathingBehavior {
             if (targetPos != null && !followGoal.isAtGoal(npc.blockPosition())) {
                 requestPath(followGoal);
             }
+        } else if (atUnloadedFrontier) {
+            // Walked to the edge of loaded terrain - search again from here
+            atUnloadedFrontier = false;
+            frontierRetry = true;
         } else {
             // Static goal reached
             stop();
@@ -207,6 +255,9 @@ public class NpcPathingBehavior {
     private void onPathFailed() {
         state = "idle";
 
+        // A cached patrol leg that can't be walked is searched again
+        forgetPatrolLeg();
+
         // Try repathing after cooldown
         if (currentGoal != null && repathCooldown <= 0) {
             repathCooldown = REPATH_COOLDOWN_TICKS;
@@ -214,12 +265,51 @@ public class NpcPathingBehavior {
         }
     }
 
+    /**
+     * Check if the last search was cut short by unloaded chunks and may be retried.
+     */
+    private boolean shouldRetryAtUnloaded() {
+        return config.isRetryAtUnloaded() && calculator.hasTouchedUnloaded();
+    }
+
+    /**
+     * Drop the cached patrol legs to the current waypoint.
+     */
+    private void forgetPatrolLeg() {
+        if (patrolGoal != null) {
+            patrolGoal.forgetLegsTo(patrolGoal.getCurrentIndex());
+        }
+    }
+
     /**
      * Request a path to the current goal.
      */
     private void requestPath(Goal goal) {
         state = "calculating";
-        BlockPos start = npc.blockPosition();
+        PathingConfig pathConfig = getCurrentConfig();
+        // While walking, keep the path up to a waypoint a little ahead and only search on from there
+        int spliceIndex = findSpliceIndex(pathConfig);
+        BlockPos start = spliceIndex >= 0
+                ? BlockPos.containing(executor.getCurrentPath().getWaypoint(spliceIndex))
+                : npc.blockPosition();
+
+        // Patrol legs walked before are reused until a block along them changes
+        if (goal instanceof GoalPatrol gp && exactTargetPosition == null) {
+            SmoothPath cached = gp.getCachedLeg(start, npc.level().dimension(),
+                    pathConfig.getEntityWidth(), pathConfig.getEntityHeight());
+            if (cached != null) {
+                calculator.cancel();
+                lastTargetPos = gp.getCurrentWaypointBlockPos();
+                executor.setPath(cached);
+                walkingPrefix = false;
+                state = "moving";
+                onRouteLeg = false;
+                atUnloadedFrontier = false;
+                repathCooldown = REPATH_COOLDOWN_TICKS;
+                return;
+            }
+        }
+        int legIndex = goal instanceof GoalPatrol gp ? gp.getCurrentIndex() : -1;
 
         if (goal instanceof GoalFollow gf && gf.isTargetValid()) {
             lastTargetPos = gf.getTargetPosition();
@@ -231,31 +321,78 @@ public class NpcPathingBehavior {
             lastTargetPos = gn.getBlockPos();
         }
 
-        calculator.requestPath(goal, start, npc.level(), getCurrentConfig(), path -> {
-            if (path != null && path.length() > 1) {
-                // Capture world data for smoothing (callback runs on main thread)
-                smoothingContext.captureRegion(npc.level(), path.getSrc(), path.getDest(), 2);
+        long priority = PathWorkerPool.priorityDelayNanos(npc);
+        // Smoothed (and ended at the exact target, if any) on the worker
+        calculator.requestSmoothPath(goal, start, npc.level(), pathConfig, priority, exactTargetPosition,
+                this::onSearchPrefix,
+                (path, smoothed) -> onSearchDone(goal, start, legIndex, spliceIndex, pathConfig, path, smoothed));
 
-                // Smooth the path using line-of-sight checks
-                SmoothPath smoothed = PathSmoother.smooth(path, smoothingContext, getCurrentConfig());
+        repathCooldown = REPATH_COOLDOWN_TICKS;
+    }
 
-                // If we have exact target position, replace the last waypoint
-                if (exactTargetPosition != null && smoothed != null) {
-                    smoothed = replaceLastWaypoint(smoothed, exactTargetPosition);
-                }
+    /**
+     * Get the waypoint of the path being walked that a repath should start from,
+     * or -1 to search from the NPC's own position.
+     */
+    private int findSpliceIndex(PathingConfig pathConfig) {
+        SmoothPath current = executor.getCurrentPath();
+        // Wide NPCs' waypoints are centered between cells and may not lie in a standable one
+        if (!executor.isExecuting() || walkingPrefix || current == null || pathConfig.getEntityWidth() > 1.0f) {
+            return -1;
+        }
+        return Math.min(executor.getCurrentWaypointIndex() + SPLICE_AHEAD, current.length() - 1);
+    }
 
-                executor.setPath(smoothed);
-                state = "moving";
+    /**
+     * Start walking the beginning of a path that is still being searched (main thread).
+     */
+    private void onSearchPrefix(SmoothPath prefix) {
+        if (executor.isExecuting()) {
+            // Already walking - keep the current path until the full one arrives
+            return;
+        }
+        executor.setPath(prefix);
+        walkingPrefix = true;
+        state = "moving";
+    }
+
+    /**
+     * Handle a finished search (main thread).
+     */
+    private void onSearchDone(Goal goal, BlockPos start, int legIndex, int spliceIndex, PathingConfig pathConfig,
+                              @Nullable IPath path, @Nullable SmoothPath smoothed) {
+        boolean continuesPrefix = walkingPrefix;
+        walkingPrefix = false;
+        if (path != null && smoothed != null) {
+            if (continuesPrefix) {
+                // Spliced in where the NPC is on the prefix
+                executor.extendPath(smoothed, npc.position());
+            } else if (spliceIndex >= 0) {
+                // Searched from a waypoint ahead - keep walking the old path up to it
+                executor.splicePath(spliceIndex, smoothed, npc.position());
             } else {
-                state = "idle";
-                // Could not find path
-                if (currentGoal != null) {
-                    repathCooldown = REPATH_COOLDOWN_TICKS * 2; // Longer cooldown on failure
-                }
+                executor.setPath(smoothed);
             }
-        });
+            state = "moving";
+            onRouteLeg = path instanceof RouteLegPath;
+            atUnloadedFrontier = !path.isComplete() && shouldRetryAtUnloaded();
 
-        repathCooldown = REPATH_COOLDOWN_TICKS;
+            if (goal instanceof GoalPatrol gp && path.isComplete() && calculator.getLastPathStamps() != null) {
+                gp.cacheLeg(start, legIndex, pathConfig.getEntityWidth(), pathConfig.getEntityHeight(),
+                        smoothed, calculator.getLastPathStamps(), npc.level().dimension());
+            }
+        } else {
+            state = "idle";
+            // Could not find path
+            if (currentGoal != null) {
+                repathCooldown = REPATH_COOLDOWN_TICKS * 2; // Longer cooldown on failure
+                if (shouldRetryAtUnloaded()) {
+                    // Blocked by unloaded chunks rather than terrain - try again later
+                    frontierRetry = true;
+                    repathCooldown = FRONTIER_RETRY_TICKS;
+                }
+            }
+        }
     }
 
     // ===== Public API =====
@@ -309,6 +446,9 @@ public class NpcPathingBehavior {
      * Start following an entity with distance parameters.
      */
     public void startFollow(Entity target, int minDistance, int maxDistance) {
+        if (followGoal == null || followGoal.getTarget() != target) {
+            calculator.resetFollowPlanner();
+        }
         clearDynamicGoals();
         followGoal = new GoalFollow(target, minDistance, maxDistance);
         setGoal(followGoal);
@@ -356,8 +496,15 @@ public class NpcPathingBehavior {
      * Set a custom goal.
      */
     public void setGoal(Goal goal) {
+        if (!(goal instanceof GoalFollow)) {
+            calculator.resetFollowPlanner();
+        }
         currentGoal = goal;
         active = true;
+        atUnloadedFrontier = false;
+        frontierRetry = false;
+        onRouteLeg = false;
+        walkingPrefix = false;
         executor.reset();
         requestPath(goal);
     }
@@ -370,7 +517,9 @@ public class NpcPathingBehavior {
         state = "idle";
         currentGoal = null;
         calculator.cancel();
+        calculator.resetFollowPlanner();
         executor.reset();
+        walkingPrefix = false;
         clearDynamicGoals();
 
         // Stop entity movement immediately to trigger idle animation
@@ -384,28 +533,14 @@ public class NpcPathingBehavior {
      * Clear dynamic goal references.
      */
     private void clearDynamicGoals() {
+        atUnloadedFrontier = false;
+        frontierRetry = false;
+        onRouteLeg = false;
         followGoal = null;
         patrolGoal = null;
         exactTargetPosition = null;
     }
 
-    /**
-     * Replace the last waypoint in a smooth path with an exact target position.
-     * This allows sub-block precision for the final destination.
-     */
-    private SmoothPath replaceLastWaypoint(SmoothPath path, Vec3 exactTarget) {
-        List<Vec3> waypoints = path.getWaypoints();
-        if (waypoints.isEmpty()) {
-            return path;
-        }
-
-        // Create a new list with the last waypoint replaced
-        List<Vec3> newWaypoints = new java.util.ArrayList<>(waypoints);
-        newWaypoints.set(newWaypoints.size() - 1, exactTarget);
-
-        return new SmoothPath(newWaypoints, path.getGoal(), path.getTotalCost(), path.isComplete());
-    }
-
     /**
      * Check if currently active.
      */
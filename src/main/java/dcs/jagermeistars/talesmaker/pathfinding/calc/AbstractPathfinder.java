@@ -1,5 +1,6 @@
 package dcs.jagermeistars.talesmaker.pathfinding.calc;
 
+import dcs.jagermeistars.talesmaker.TalesMaker;
 import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
 import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
 import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
@@ -7,9 +8,14 @@ import dcs.jagermeistars.talesmaker.pathfinding.movement.Movement;
 import dcs.jagermeistars.talesmaker.pathfinding.path.CutoffPath;
 import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
 import dcs.jagermeistars.talesmaker.pathfinding.path.Path;
+import dcs.jagermeistars.talesmaker.pathfinding.path.PathSmoother;
+import dcs.jagermeistars.talesmaker.pathfinding.path.SmoothPath;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.minecraft.core.BlockPos;
 
+import javax.annotation.Nullable;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * A* pathfinder implementation with Baritone-inspired optimizations.
@@ -20,8 +26,58 @@ public class AbstractPathfinder {
     private final PathingConfig config;
 
     // A* data structures
+    private final NodeArena arena;
     private final BinaryHeapOpenSet openSet;
-    private final Map<Long, PathNode> nodeMap;
+
+    // Movement rules; moves out of the node being expanded go to updateNode
+    private final MoveGenerator moves;
+    private final MoveGenerator.MoveSink relax = this::relaxFromExpanding;
+    private int expanding;
+
+    // Jump Point Search on flat ground (normal-width entities, unbounded searches only)
+    private final boolean jumpPoints;
+
+    // Anytime search (ARA*): heuristic weight of the current pass, nodes expanded in it,
+    // and closed nodes whose cost improved since (queued again at the next pass)
+    private boolean anytime;
+    private float weight = 1.0f;
+    private BitSet closed;
+    private BitSet inconsistent;
+    private IntArrayList incons;
+
+    // Any-angle search (Lazy Theta*): nodes whose parent was taken from their predecessor
+    // without a line-of-sight check yet, and the smoothed form of the last returned path
+    private boolean anyAngle;
+    private BitSet unverified;
+    private final MoveGenerator.MoveSink repair = this::repairFromPredecessor;
+    private int repairBest;
+    private float repairBestG;
+    private SmoothPath smoothPath;
+
+    // Progressive delivery: after this many nodes, the start of the best partial path
+    // is handed to the listener while the search goes on
+    private int prefixNodes;
+    private Consumer<IPath> prefixListener;
+
+    // Resumable A* state: search() runs it to the end, step() a slice at a time
+    private int searchStart;
+    private BlockPos searchStartPos;
+    private int searchBest;
+    private float searchBestHeuristic;
+    private int searchMaxNodes;
+    private long searchMaxNanos;
+    private long searchedNanos;
+    private boolean searchDone;
+    private IPath searchResult;
+
+    // Checked with the time budget; a canceled search returns null
+    private SearchToken token = SearchToken.NONE;
+
+    // Optional search box (inclusive); moves leaving it are reported instead of followed
+    private boolean bounded;
+    private int boundMinX, boundMinY, boundMinZ;
+    private int boundMaxX, boundMaxY, boundMaxZ;
+    private CrossingListener crossingListener;
 
     // Statistics
     private int nodesEvaluated;
@@ -30,12 +86,86 @@ public class AbstractPathfinder {
     // Time check interval (Baritone optimization: check every 64 nodes)
     private static final int TIME_CHECK_INTERVAL = 64;
 
+    // Shortest partial path worth publishing as a prefix
+    private static final int MIN_PREFIX_LENGTH = 8;
+
+    // Longest straight or diagonal scan before a jump point is placed anyway
+    private static final int MAX_JUMP = 64;
+
+    // One arena per search thread, reused across searches so a warmed-up search allocates nothing
+    private static final ThreadLocal<NodeArena> ARENAS = ThreadLocal.withInitial(NodeArena::new);
+
     public AbstractPathfinder(Goal goal, WorldContext context) {
+        this(goal, context, ARENAS.get());
+    }
+
+    /**
+     * Get the calling thread's arena, for searches that run instead of this one.
+     */
+    static NodeArena threadArena() {
+        return ARENAS.get();
+    }
+
+    public AbstractPathfinder(Goal goal, WorldContext context, NodeArena arena) {
         this.goal = goal;
         this.context = context;
         this.config = context.getConfig();
-        this.openSet = new BinaryHeapOpenSet();
-        this.nodeMap = new HashMap<>();
+        this.arena = arena;
+        this.openSet = arena.getOpenSet();
+        this.moves = new MoveGenerator(context);
+        this.jumpPoints = config.isJumpPointSearch() && !config.isAnyAngleSearch()
+                && config.getEntityWidth() <= 1.0f;
+    }
+
+    /**
+     * Set the token that can cancel this search.
+     */
+    public void setToken(SearchToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Hand the start of the best partial path to a listener once a number of nodes has been
+     * expanded without reaching the goal. Called on the search thread.
+     */
+    public void setPrefixListener(int afterNodes, Consumer<IPath> listener) {
+        this.prefixNodes = afterNodes;
+        this.prefixListener = listener;
+    }
+
+    /**
+     * Receives moves that would leave the search box.
+     */
+    @FunctionalInterface
+    public interface CrossingListener {
+        /**
+         * @param from     node the move starts from
+         * @param cost     total cost from the search start to the cell outside the box
+         */
+        void onCrossing(int from, int toX, int toY, int toZ, float cost);
+    }
+
+    /**
+     * Restrict the search to a box (inclusive).
+     * Moves out of the box are not expanded; they are passed to the listener, if any.
+     */
+    public void setBounds(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                          CrossingListener listener) {
+        this.bounded = true;
+        this.boundMinX = minX;
+        this.boundMinY = minY;
+        this.boundMinZ = minZ;
+        this.boundMaxX = maxX;
+        this.boundMaxY = maxY;
+        this.boundMaxZ = maxZ;
+        this.crossingListener = listener;
+    }
+
+    /**
+     * Get the node storage, e.g. to read costs after a bounded exploration.
+     */
+    public NodeArena getArena() {
+        return arena;
     }
 
     /**
@@ -44,54 +174,156 @@ public class AbstractPathfinder {
      * @param start     starting position
      * @param maxNodes  maximum nodes to evaluate
      * @param maxTimeMs maximum time in milliseconds
-     * @return the calculated path
+     * @return the calculated path, or null if none was found or the search was canceled
      */
     public IPath calculate(BlockPos start, int maxNodes, long maxTimeMs) {
-        long startTime = System.nanoTime();
-        long maxTimeNanos = maxTimeMs * 1_000_000L;
-        nodesEvaluated = 0;
+        int startNode = init(start, true);
+        if (anytime) {
+            return searchAnytime(startNode, start, maxNodes, maxTimeMs);
+        }
+        return search(startNode, start, maxNodes, maxTimeMs);
+    }
+
+    /**
+     * Start a search that is then run a slice at a time with {@link #step}.
+     * Always plain A*: the anytime search can't be paused between passes.
+     */
+    public void begin(BlockPos start, int maxNodes, long maxTimeMs) {
+        int startNode = init(start, false);
+        beginSearch(startNode, start, maxNodes, maxTimeMs);
+    }
+
+    /**
+     * Continue a search started with {@link #begin} for about the given time.
+     * Its time limit only counts time spent in steps.
+     *
+     * @return true once the search has finished, see {@link #getResult()}
+     */
+    public boolean step(long sliceNanos) {
+        return searchDone || runSearch(sliceNanos);
+    }
+
+    /**
+     * Get the result of a finished stepped search: the path, or null if none was found
+     * or the search was canceled.
+     */
+    @Nullable
+    public IPath getResult() {
+        return searchResult;
+    }
+
+    /**
+     * Reset the arena and search mode and queue the start node.
+     */
+    private int init(BlockPos start, boolean allowAnytime) {
+        arena.clear();
+        smoothPath = null;
+        anyAngle = !bounded && config.isAnyAngleSearch();
+        if (anyAngle) {
+            closed = new BitSet();
+            unverified = new BitSet();
+        }
+        anytime = allowAnytime && !bounded && !anyAngle && config.getHeuristicWeight() > 1.0;
+        weight = anytime ? (float) config.getHeuristicWeight() : 1.0f;
 
-        // Debug: Check start position validity
-        boolean canStand = context.canStandAt(start.getX(), start.getY(), start.getZ());
         // Initialize start node
-        PathNode startNode = getOrCreateNode(start);
-        startNode.setGCost(0);
-        startNode.setHCost(goal.heuristic(start));
+        int startNode = arena.getOrCreate(start.getX(), start.getY(), start.getZ());
+        arena.setGCost(startNode, 0);
+        arena.setHCost(startNode, weight * (float) goal.heuristic(start));
         openSet.insert(startNode);
+        return startNode;
+    }
 
-        // Track best partial path
-        PathNode bestNode = startNode;
-        double bestHeuristic = startNode.getHCost();
+    /**
+     * Continue a search over the nodes already in the arena instead of starting over.
+     * The caller primes the open set (with unweighted heuristics - resumed searches run
+     * plain A*); startNode must be the root of the existing tree (g = 0).
+     *
+     * @return the calculated path, or null if none was found or the search was canceled
+     */
+    public IPath resume(int startNode, BlockPos start, int maxNodes, long maxTimeMs) {
+        return search(startNode, start, maxNodes, maxTimeMs);
+    }
+
+    /**
+     * Run A* from the current open set.
+     */
+    private IPath search(int startNode, BlockPos start, int maxNodes, long maxTimeMs) {
+        beginSearch(startNode, start, maxNodes, maxTimeMs);
+        runSearch(Long.MAX_VALUE);
+        return searchResult;
+    }
+
+    private void beginSearch(int startNode, BlockPos start, int maxNodes, long maxTimeMs) {
+        searchStart = startNode;
+        searchStartPos = start;
+        searchBest = startNode;
+        searchBestHeuristic = arena.getHCost(startNode);
+        searchMaxNodes = maxNodes;
+        searchMaxNanos = maxTimeMs * 1_000_000L;
+        searchedNanos = 0;
+        searchDone = false;
+        searchResult = null;
+        nodesEvaluated = 0;
+        computeTimeNanos = 0;
+    }
+
+    /**
+     * Run A* until it finishes or a slice of time is used up.
+     *
+     * @return true once the search has finished
+     */
+    private boolean runSearch(long sliceNanos) {
+        long sliceStart = System.nanoTime();
+        long fetchWaitAtStart = context.getFetchWaitNanos();
+        int sliceNodes = 0;
 
         while (!openSet.isEmpty()) {
             // Time check every N nodes (Baritone optimization)
+            // Time spent waiting for lazily copied sections doesn't count against the budget
             if ((nodesEvaluated & (TIME_CHECK_INTERVAL - 1)) == 0) {
-                if (System.nanoTime() - startTime > maxTimeNanos) {
-                    computeTimeNanos = System.nanoTime() - startTime;
-                    return createPartialPath(bestNode, start);
+                if (token.isCanceled()) {
+                    return finishSearch(null, sliceStart);
+                }
+                long now = System.nanoTime();
+                long searched = searchedNanos + now - sliceStart - (context.getFetchWaitNanos() - fetchWaitAtStart);
+                if (searched > searchMaxNanos) {
+                    return finishSearch(createPartialPath(searchBest, searchStartPos), sliceStart);
+                }
+                if (sliceNodes > 0 && now - sliceStart >= sliceNanos) {
+                    // Out of slice - pick up from here next step
+                    searchedNanos = searched;
+                    computeTimeNanos += now - sliceStart;
+                    return false;
                 }
             }
 
             // Node limit check
-            if (nodesEvaluated >= maxNodes) {
-                computeTimeNanos = System.nanoTime() - startTime;
-                return createPartialPath(bestNode, start);
+            if (nodesEvaluated >= searchMaxNodes) {
+                return finishSearch(createPartialPath(searchBest, searchStartPos), sliceStart);
             }
 
-            PathNode current = openSet.poll();
+            int current = openSet.poll();
             nodesEvaluated++;
+            sliceNodes++;
+            if (anyAngle) {
+                closed.set(current);
+                verifyParent(current);
+            }
 
             // Goal check
-            if (goal.isAtGoal(current.getX(), current.getY(), current.getZ())) {
-                computeTimeNanos = System.nanoTime() - startTime;
-                return createCompletePath(current, start);
+            if (goal.isAtGoal(arena.getX(current), arena.getY(current), arena.getZ(current))) {
+                return finishSearch(createCompletePath(current, searchStartPos), sliceStart);
             }
 
             // Update best partial path
-            double currentH = current.getHCost();
-            if (currentH < bestHeuristic) {
-                bestHeuristic = currentH;
-                bestNode = current;
+            float currentH = arena.getHCost(current);
+            if (currentH < searchBestHeuristic) {
+                searchBestHeuristic = currentH;
+                searchBest = current;
+            }
+            if (nodesEvaluated == prefixNodes) {
+                publishPrefix(searchBest);
             }
 
             // Expand neighbors
@@ -99,281 +331,413 @@ public class AbstractPathfinder {
         }
 
         // No path found
-        computeTimeNanos = System.nanoTime() - startTime;
-        if (bestNode != startNode) {
-            return createPartialPath(bestNode, start);
+        IPath partial = null;
+        if (searchBest != searchStart) {
+            partial = createPartialPath(searchBest, searchStartPos);
         }
-        return null;
+        return finishSearch(partial, sliceStart);
     }
 
-    // Debug counter for first few nodes
-    private int debugCount = 0;
+    private boolean finishSearch(@Nullable IPath result, long sliceStart) {
+        computeTimeNanos += System.nanoTime() - sliceStart;
+        searchResult = result;
+        searchDone = true;
+        return true;
+    }
 
     /**
-     * Expand a node by evaluating all possible movements from it.
+     * ARA*: weighted A* passes with a shrinking heuristic weight, each reusing the work of
+     * the one before. The first pass finds a path costing at most weight times the optimum
+     * within a few hundred nodes; later passes improve it until the weight reaches 1 or the
+     * refine time runs out. Out of budget, the best path found so far is returned complete.
      */
-    private void expandNode(PathNode current) {
-        int x = current.getX();
-        int y = current.getY();
-        int z = current.getZ();
+    private IPath searchAnytime(int startNode, BlockPos start, int maxNodes, long maxTimeMs) {
+        long startTime = System.nanoTime();
+        long fetchWaitAtStart = context.getFetchWaitNanos();
+        long maxTimeNanos = maxTimeMs * 1_000_000L;
+        long refineNanos = config.getAnytimeRefineMs() * 1_000_000L;
+        float step = (float) Math.max(config.getHeuristicWeightStep(), 0.01);
+        nodesEvaluated = 0;
+        closed = new BitSet();
+        inconsistent = new BitSet();
+        incons = new IntArrayList();
+
+        int bestNode = startNode;
+        float bestHeuristic = arena.getHCost(startNode);
+        int solution = NodeArena.NONE;
+        long solvedAt = 0;
+
+        while (true) {
+            // One pass: expand until no queued node can lead to a cheaper goal
+            while (!openSet.isEmpty()) {
+                if ((nodesEvaluated & (TIME_CHECK_INTERVAL - 1)) == 0) {
+                    if (token.isCanceled()) {
+                        computeTimeNanos = System.nanoTime() - startTime;
+                        return null;
+                    }
+                    long elapsed = System.nanoTime() - startTime - (context.getFetchWaitNanos() - fetchWaitAtStart);
+                    if (elapsed > maxTimeNanos || (solution != NodeArena.NONE && elapsed - solvedAt > refineNanos)) {
+                        return finishAnytime(solution, bestNode, start, startTime);
+                    }
+                }
+                if (nodesEvaluated >= maxNodes) {
+                    return finishAnytime(solution, bestNode, start, startTime);
+                }
+                if (solution != NodeArena.NONE && arena.getFCost(openSet.peek()) >= arena.getGCost(solution)) {
+                    break;
+                }
 
+                int current = openSet.poll();
+                nodesEvaluated++;
+                closed.set(current);
+
+                if (goal.isAtGoal(arena.getX(current), arena.getY(current), arena.getZ(current))) {
+                    if (solution == NodeArena.NONE) {
+                        solvedAt = System.nanoTime() - startTime - (context.getFetchWaitNanos() - fetchWaitAtStart);
+                    }
+                    if (solution == NodeArena.NONE || arena.getGCost(current) < arena.getGCost(solution)) {
+                        solution = current;
+                    }
+                    break;
+                }
 
-        // Cardinal directions
-        tryMove(current, x + 1, y, z, ActionCosts.WALK);
-        tryMove(current, x - 1, y, z, ActionCosts.WALK);
-        tryMove(current, x, y, z + 1, ActionCosts.WALK);
-        tryMove(current, x, y, z - 1, ActionCosts.WALK);
+                float currentH = arena.getHCost(current);
+                if (currentH < bestHeuristic) {
+                    bestHeuristic = currentH;
+                    bestNode = current;
+                }
+                if (nodesEvaluated == prefixNodes && solution == NodeArena.NONE) {
+                    publishPrefix(bestNode);
+                }
 
-        // Diagonal directions (4)
-        if (canMoveDiagonal(x, y, z, 1, 1)) {
-            tryMove(current, x + 1, y, z + 1, ActionCosts.DIAGONAL);
-        }
-        if (canMoveDiagonal(x, y, z, 1, -1)) {
-            tryMove(current, x + 1, y, z - 1, ActionCosts.DIAGONAL);
-        }
-        if (canMoveDiagonal(x, y, z, -1, 1)) {
-            tryMove(current, x - 1, y, z + 1, ActionCosts.DIAGONAL);
-        }
-        if (canMoveDiagonal(x, y, z, -1, -1)) {
-            tryMove(current, x - 1, y, z - 1, ActionCosts.DIAGONAL);
-        }
+                expandNode(current);
+            }
 
-        // Jump up (in all 4 cardinal directions)
-        tryJumpUp(current, x + 1, y + 1, z);
-        tryJumpUp(current, x - 1, y + 1, z);
-        tryJumpUp(current, x, y + 1, z + 1);
-        tryJumpUp(current, x, y + 1, z - 1);
-
-        // Step/fall down (in all 4 cardinal directions)
-        tryDescend(current, x + 1, y, z);
-        tryDescend(current, x - 1, y, z);
-        tryDescend(current, x, y, z + 1);
-        tryDescend(current, x, y, z - 1);
-
-        // Climb up/down (if on climbable)
-        if (context.isClimbable(x, y, z)) {
-            tryMove(current, x, y + 1, z, ActionCosts.CLIMB);
-            tryMove(current, x, y - 1, z, ActionCosts.CLIMB);
+            if (solution == NodeArena.NONE) {
+                // Nothing left to expand and no path
+                computeTimeNanos = System.nanoTime() - startTime;
+                return bestNode != startNode ? createPartialPath(bestNode, start) : null;
+            }
+            if (weight <= 1.0f || (openSet.isEmpty() && incons.isEmpty())) {
+                // Optimal, or nothing could improve it
+                return finishAnytime(solution, bestNode, start, startTime);
+            }
+
+            // Next pass: lower the weight, requeue improved closed nodes, re-key everything
+            weight = Math.max(1.0f, weight - step);
+            for (int i = 0; i < incons.size(); i++) {
+                openSet.insert(incons.getInt(i));
+            }
+            for (int node = 0; node < arena.size(); node++) {
+                if (arena.isInHeap(node)) {
+                    double h = goal.heuristic(arena.getX(node), arena.getY(node), arena.getZ(node));
+                    arena.setHCost(node, weight * (float) h);
+                }
+            }
+            openSet.rebuild();
+            incons.clear();
+            inconsistent.clear();
+            closed.clear();
         }
+    }
 
-        // Parkour jumps (2-block gaps in cardinal directions)
-        if (config.canParkour()) {
-            tryParkour(current, x + 2, y, z, x + 1);
-            tryParkour(current, x - 2, y, z, x - 1);
-            tryParkour(current, x, y, z + 2, z + 1);
-            tryParkour(current, x, y, z - 2, z - 1);
+    private IPath finishAnytime(int solution, int bestNode, BlockPos start, long startTime) {
+        computeTimeNanos = System.nanoTime() - startTime;
+        TalesMaker.LOGGER.debug("[Pathfinding] Anytime search: weight={}, solved={}, evaluated={}",
+                weight, solution != NodeArena.NONE, nodesEvaluated);
+        if (solution != NodeArena.NONE) {
+            return createCompletePath(solution, start);
         }
+        return createPartialPath(bestNode, start);
     }
 
     /**
-     * Try a basic movement to a position.
+     * Hand the first half of the best partial path to the prefix listener. Only half, so
+     * the part walked before the full path arrives rarely leads into the dead end a
+     * best-so-far node can turn out to be.
      */
-    private void tryMove(PathNode from, int toX, int toY, int toZ, double baseCost) {
-        if (!context.canStandAt(toX, toY, toZ)) {
+    private void publishPrefix(int bestNode) {
+        if (prefixListener == null) {
             return;
         }
-
-        double cost = baseCost;
-
-        // Water penalty
-        if (context.isWater(toX, toY, toZ)) {
-            if (!config.canSwim()) return;
-            cost += ActionCosts.WATER_PENALTY;
+        List<BlockPos> positions = reconstructPositions(bestNode);
+        if (positions.size() < MIN_PREFIX_LENGTH) {
+            return;
         }
+        IPath partial = new CutoffPath(positions, Collections.emptyList(), goal, arena.getGCost(bestNode));
+        prefixListener.accept(partial.cutoffAtIndex(positions.size() / 2));
+    }
 
-        // Door handling
-        if (context.isDoor(toX, toY, toZ)) {
-            if (!config.canOpenDoors() && !context.isDoorOpen(toX, toY, toZ)) {
-                return;
-            }
-            cost += ActionCosts.DOOR - ActionCosts.WALK;
+    /**
+     * Expand a node by evaluating all possible movements from it.
+     */
+    private void expandNode(int current) {
+        int x = arena.getX(current);
+        int y = arena.getY(current);
+        int z = arena.getZ(current);
+        if (jumpPoints && !bounded && moves.isFlat(x, y, z)) {
+            expandJumpPoints(current, x, y, z);
+            return;
         }
-
-        updateNode(from, toX, toY, toZ, cost);
+        expanding = current;
+        moves.successors(x, y, z, relax);
     }
 
     /**
-     * Check if diagonal movement is allowed (no corner cutting).
-     * For wide entities, diagonal movement is restricted near walls.
+     * Expand a flat node with Jump Point Search (no corner cutting).
+     * Only the directions that can't be reached as cheaply through the parent are scanned,
+     * and each scan adds just the next jump point instead of every cell along the way.
      */
-    private boolean canMoveDiagonal(int x, int y, int z, int dx, int dz) {
-        float width = config.getEntityWidth();
+    private void expandJumpPoints(int current, int x, int y, int z) {
+        int parent = arena.getParent(current);
+        if (parent == NodeArena.NONE || arena.getY(parent) != y) {
+            // No planar direction of travel yet - scan all 8 directions
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx != 0 || dz != 0) {
+                        jumpFrom(current, x, y, z, dx, dz);
+                    }
+                }
+            }
+            return;
+        }
 
-        // Standard check first: both adjacent cardinal positions are passable
-        if (!context.isPassable(x + dx, y, z) || !context.isPassable(x, y, z + dz)) {
-            return false;
+        int dx = Integer.signum(x - arena.getX(parent));
+        int dz = Integer.signum(z - arena.getZ(parent));
+        if (dx != 0 && dz != 0) {
+            jumpFrom(current, x, y, z, 0, dz);
+            jumpFrom(current, x, y, z, dx, 0);
+            jumpFrom(current, x, y, z, dx, dz);
+        } else if (dx != 0) {
+            jumpFrom(current, x, y, z, dx, 0);
+            jumpFrom(current, x, y, z, dx, 1);
+            jumpFrom(current, x, y, z, dx, -1);
+            jumpFrom(current, x, y, z, 0, 1);
+            jumpFrom(current, x, y, z, 0, -1);
+        } else {
+            jumpFrom(current, x, y, z, 0, dz);
+            jumpFrom(current, x, y, z, 1, dz);
+            jumpFrom(current, x, y, z, -1, dz);
+            jumpFrom(current, x, y, z, 1, 0);
+            jumpFrom(current, x, y, z, -1, 0);
         }
-        if (!context.canStandAt(x + dx, y, z + dz)) {
-            return false;
+    }
+
+    private void jumpFrom(int current, int x, int y, int z, int dx, int dz) {
+        int steps = jump(x, y, z, dx, dz, true);
+        if (steps > 0) {
+            double stepCost = dx != 0 && dz != 0 ? ActionCosts.DIAGONAL : ActionCosts.WALK;
+            updateNode(current, x + dx * steps, y, z + dz * steps, steps * stepCost);
         }
+    }
 
-        // For wide entities, add extra check for the "inner corner"
-        // When moving diagonally past a corner, wide entity clips through it
-        if (width > 1.0f) {
-            // Check if there's a wall at the corner we're cutting
-            // The corner is at (x, z) relative to start, opposite to movement direction
-            int cornerX = x - dx;
-            int cornerZ = z - dz;
-
-            // If there's a solid block at the inner corner, don't allow diagonal
-            // This prevents wide entities from clipping through corners
-            if (context.isSolid(cornerX, y, cornerZ) || context.isSolid(cornerX, y + 1, cornerZ)) {
-                return false;
+    /**
+     * Scan from a cell in one direction until a jump point: the goal, a cell where the
+     * terrain stops being flat, or a cell with a forced neighbour.
+     *
+     * @param capped whether reaching {@code MAX_JUMP} places a jump point; false for the
+     *               straight scans a diagonal makes, whose own cap bounds them instead
+     * @return steps to the jump point, or 0 if the scan ran into an obstacle (or an
+     *         uncapped scan into its limit) first
+     */
+    private int jump(int x, int y, int z, int dx, int dz, boolean capped) {
+        boolean diagonal = dx != 0 && dz != 0;
+        for (int steps = 1; steps <= MAX_JUMP; steps++) {
+            // No corner cutting: a diagonal step needs both side cells open
+            if (diagonal && !(moves.isPlain(x + dx, y, z) && moves.isPlain(x, y, z + dz))) {
+                return 0;
             }
-
-            // Also check the outer corners that wide entity might hit
-            if (context.isSolid(x + dx, y, cornerZ) || context.isSolid(x + dx, y + 1, cornerZ)) {
-                return false;
+            x += dx;
+            z += dz;
+            if (!moves.isPlain(x, y, z)) {
+                return 0;
             }
-            if (context.isSolid(cornerX, y, z + dz) || context.isSolid(cornerX, y + 1, z + dz)) {
-                return false;
+            if (goal.isAtGoal(x, y, z) || !moves.isFlat(x, y, z)) {
+                return steps;
+            }
+
+            if (diagonal) {
+                if (jump(x, y, z, dx, 0, false) > 0 || jump(x, y, z, 0, dz, false) > 0) {
+                    return steps;
+                }
+            } else if (dx != 0) {
+                if ((moves.isPlain(x, y, z - 1) && !moves.isPlain(x - dx, y, z - 1))
+                        || (moves.isPlain(x, y, z + 1) && !moves.isPlain(x - dx, y, z + 1))) {
+                    return steps;
+                }
+            } else if ((moves.isPlain(x - 1, y, z) && !moves.isPlain(x - 1, y, z - dz))
+                    || (moves.isPlain(x + 1, y, z) && !moves.isPlain(x + 1, y, z - dz))) {
+                return steps;
             }
         }
+        // Long open stretch - stop here so the scan stays bounded
+        return capped ? MAX_JUMP : 0;
+    }
 
-        return true;
+    private void relaxFromExpanding(int toX, int toY, int toZ, double movementCost) {
+        updateNode(expanding, toX, toY, toZ, movementCost);
     }
 
     /**
-     * Try jumping up one block.
+     * Update or create a node with a new path cost.
      */
-    private void tryJumpUp(PathNode from, int toX, int toY, int toZ) {
-        int fromX = from.getX();
-        int fromY = from.getY();
-        int fromZ = from.getZ();
-
-        // Need headroom at start position for jump
-        int height = (int) Math.ceil(config.getEntityHeight());
-        if (!context.hasHeadroom(fromX, fromY, fromZ, height + 1)) {
-            return;
+    private void updateNode(int from, int toX, int toY, int toZ, double movementCost) {
+        float newG = arena.getGCost(from) + (float) movementCost;
+        int parent = from;
+        boolean shortcut = false;
+        if (anyAngle) {
+            // Lazy Theta*: assume the predecessor's parent sees the new cell, check on expansion
+            int grand = arena.getParent(from);
+            if (grand != NodeArena.NONE && canShortcut(grand, from, toX, toY, toZ)) {
+                parent = grand;
+                newG = arena.getGCost(grand) + (float) straightCost(grand, toX, toZ);
+                shortcut = true;
+            }
         }
-
-        // Destination must be standable
-        if (!context.canStandAt(toX, toY, toZ)) {
+        if (bounded && (toX < boundMinX || toX > boundMaxX || toY < boundMinY || toY > boundMaxY
+                || toZ < boundMinZ || toZ > boundMaxZ)) {
+            if (crossingListener != null) {
+                crossingListener.onCrossing(from, toX, toY, toZ, newG);
+            }
             return;
         }
+        int neighbor = arena.getOrCreate(toX, toY, toZ);
+
+        if (newG < arena.getGCost(neighbor)) {
+            arena.setGCost(neighbor, newG);
+            arena.setHCost(neighbor, weight * (float) goal.heuristic(toX, toY, toZ));
+            arena.setParent(neighbor, parent);
+            if (anyAngle) {
+                unverified.set(neighbor, shortcut);
+            }
 
-        updateNode(from, toX, toY, toZ, ActionCosts.JUMP_UP);
+            if (arena.isInHeap(neighbor)) {
+                openSet.update(neighbor);
+            } else if (anytime && closed.get(neighbor)) {
+                // Already expanded in this anytime pass - picked up by the next one
+                if (!inconsistent.get(neighbor)) {
+                    inconsistent.set(neighbor);
+                    incons.add(neighbor);
+                }
+            } else {
+                openSet.insert(neighbor);
+            }
+        }
     }
 
     /**
-     * Try stepping or falling down.
+     * Check if a move's cell may take the moving node's parent as its own:
+     * all three on one level, the new cell plain ground and more than a step away.
      */
-    private void tryDescend(PathNode from, int toX, int toY, int toZ) {
-        // Check if we can walk directly (same level or step down via step height)
-        if (context.canStandAt(toX, toY, toZ)) {
-            // Already handled by tryMove
-            return;
+    private boolean canShortcut(int grand, int from, int toX, int toY, int toZ) {
+        if (arena.getY(grand) != toY || arena.getY(from) != toY) {
+            return false;
         }
+        int dx = Math.abs(toX - arena.getX(grand));
+        int dz = Math.abs(toZ - arena.getZ(grand));
+        return Math.max(dx, dz) >= 2 && moves.isPlain(toX, toY, toZ);
+    }
 
-        // Check for fall/step down
-        for (int fallDist = 1; fallDist <= config.getMaxFallDistance(); fallDist++) {
-            int landY = toY - fallDist;
-            if (context.canStandAt(toX, landY, toZ)) {
-                double cost = fallDist == 1 ? ActionCosts.STEP_DOWN : ActionCosts.fallCost(fallDist);
-                updateNode(from, toX, landY, toZ, cost);
-                return;
-            }
-        }
+    private double straightCost(int from, int toX, int toZ) {
+        int dx = toX - arena.getX(from);
+        int dz = toZ - arena.getZ(from);
+        return ActionCosts.WALK * Math.sqrt(dx * dx + dz * dz);
     }
 
     /**
-     * Try a parkour jump across a gap.
+     * Lazy Theta*: check the line of sight of a node being expanded to its assumed parent.
+     * Without it the node falls back to its cheapest expanded predecessor.
      */
-    private void tryParkour(PathNode from, int toX, int toY, int toZ, int gapCheck) {
-        int fromX = from.getX();
-        int fromY = from.getY();
-        int fromZ = from.getZ();
-
-        // Gap must be air
-        int gapX = (toX != fromX) ? gapCheck : fromX;
-        int gapZ = (toZ != fromZ) ? gapCheck : fromZ;
-
-        if (!context.isPassable(gapX, fromY, gapZ) || context.isSolid(gapX, fromY - 1, gapZ)) {
-            return; // No gap or gap has ground
-        }
-
-        // Need headroom for jump arc
-        int height = (int) Math.ceil(config.getEntityHeight());
-        if (!context.hasHeadroom(fromX, fromY, fromZ, height + 1)) {
+    private void verifyParent(int node) {
+        if (!unverified.get(node)) {
             return;
         }
-
-        // Destination must be standable
-        if (!context.canStandAt(toX, toY, toZ)) {
+        unverified.clear(node);
+        int parent = arena.getParent(node);
+        int x = arena.getX(node);
+        int y = arena.getY(node);
+        int z = arena.getZ(node);
+        if (PathSmoother.hasLineOfSight(arena.getX(parent), y, arena.getZ(parent), x, z, context, config)) {
             return;
         }
 
-        updateNode(from, toX, toY, toZ, ActionCosts.parkourCost(2));
+        repairBest = NodeArena.NONE;
+        repairBestG = Float.MAX_VALUE;
+        moves.predecessors(x, y, z, repair);
+        if (repairBest != NodeArena.NONE) {
+            arena.setParent(node, repairBest);
+            arena.setGCost(node, repairBestG);
+        }
     }
 
-    /**
-     * Update or create a node with a new path cost.
-     */
-    private void updateNode(PathNode from, int toX, int toY, int toZ, double movementCost) {
-        double newG = from.getGCost() + movementCost;
-        PathNode neighbor = getOrCreateNode(toX, toY, toZ);
-
-        if (newG < neighbor.getGCost()) {
-            neighbor.setGCost(newG);
-            neighbor.setHCost(goal.heuristic(toX, toY, toZ));
-            neighbor.setParent(from);
-
-            if (neighbor.isInHeap()) {
-                openSet.update(neighbor);
-            } else {
-                openSet.insert(neighbor);
+    private void repairFromPredecessor(int x, int y, int z, double cost) {
+        int node = arena.find(x, y, z);
+        if (node != NodeArena.NONE && closed.get(node)) {
+            float g = arena.getGCost(node) + (float) cost;
+            if (g < repairBestG) {
+                repairBestG = g;
+                repairBest = node;
             }
         }
     }
 
     /**
-     * Get or create a node for a position.
-     */
-    private PathNode getOrCreateNode(BlockPos pos) {
-        return getOrCreateNode(pos.getX(), pos.getY(), pos.getZ());
-    }
-
-    /**
-     * Get or create a node for coordinates.
+     * Get the smoothed form of the last returned path, built from an any-angle search's
+     * parent chain, or null if the search was not any-angle.
      */
-    private PathNode getOrCreateNode(int x, int y, int z) {
-        long hash = BlockPos.asLong(x, y, z);
-        PathNode node = nodeMap.get(hash);
-        if (node == null) {
-            node = new PathNode(x, y, z);
-            nodeMap.put(hash, node);
-        }
-        return node;
+    @Nullable
+    public SmoothPath getSmoothPath() {
+        return smoothPath;
     }
 
     /**
      * Create a complete path from the goal node.
      */
-    private IPath createCompletePath(PathNode endNode, BlockPos start) {
+    private IPath createCompletePath(int endNode, BlockPos start) {
         List<BlockPos> positions = reconstructPositions(endNode);
         List<Movement> movements = Collections.emptyList(); // Will be populated by MovementExecutor
-        return new Path(positions, movements, goal, endNode.getGCost(), true);
+        return withSmoothPath(new Path(positions, movements, goal, arena.getGCost(endNode), true), endNode);
     }
 
     /**
      * Create a partial path from the best node found.
      */
-    private IPath createPartialPath(PathNode bestNode, BlockPos start) {
+    private IPath createPartialPath(int bestNode, BlockPos start) {
         List<BlockPos> positions = reconstructPositions(bestNode);
         List<Movement> movements = Collections.emptyList();
-        return new CutoffPath(positions, movements, goal, bestNode.getGCost());
+        return withSmoothPath(new CutoffPath(positions, movements, goal, arena.getGCost(bestNode)), bestNode);
+    }
+
+    /**
+     * For an any-angle search, keep the path's corners (its parent chain) as its smoothed form.
+     */
+    private IPath withSmoothPath(IPath path, int endNode) {
+        if (anyAngle) {
+            List<BlockPos> corners = new ArrayList<>();
+            for (int node = endNode; node != NodeArena.NONE && corners.size() <= path.length();
+                 node = arena.getParent(node)) {
+                corners.add(arena.getPos(node));
+            }
+            Collections.reverse(corners);
+            smoothPath = PathSmoother.fromCorners(path, corners, context, config);
+        }
+        return path;
     }
 
     /**
      * Reconstruct the path from end node to start.
      */
-    private List<BlockPos> reconstructPositions(PathNode endNode) {
+    private List<BlockPos> reconstructPositions(int endNode) {
         List<BlockPos> positions = new ArrayList<>();
-        PathNode current = endNode;
+        int current = endNode;
 
-        while (current != null) {
-            positions.add(current.getPos());
-            current = current.getParent();
+        while (current != NodeArena.NONE) {
+            positions.add(arena.getPos(current));
+            int parent = arena.getParent(current);
+            if ((jumpPoints || anyAngle) && parent != NodeArena.NONE) {
+                addSkippedCells(positions, current, parent);
+            }
+            current = parent;
 
             // Safety limit
             if (positions.size() > config.getMaxPathLength()) {
@@ -385,6 +749,32 @@ public class AbstractPathfinder {
         return positions;
     }
 
+    /**
+     * Add the cells a jump or line-of-sight shortcut passed over between a node and its
+     * parent (in reverse order). Shortcut cells are the ones its line-of-sight check stepped on.
+     */
+    private void addSkippedCells(List<BlockPos> positions, int node, int parent) {
+        int y = arena.getY(node);
+        int px = arena.getX(parent);
+        int pz = arena.getZ(parent);
+        int dx = arena.getX(node) - px;
+        int dz = arena.getZ(node) - pz;
+        int steps = Math.max(Math.abs(dx), Math.abs(dz));
+        if (arena.getY(parent) != y || steps < 2
+                || (!anyAngle && dx != 0 && dz != 0 && Math.abs(dx) != Math.abs(dz))) {
+            return;
+        }
+        double stepX = (double) dx / steps;
+        double stepZ = (double) dz / steps;
+        // Parkour skips a cell too, but its gap can't be stood on
+        if (!context.canStandAt(px + (int) Math.round(stepX), y, pz + (int) Math.round(stepZ))) {
+            return;
+        }
+        for (int i = steps - 1; i >= 1; i--) {
+            positions.add(new BlockPos(px + (int) Math.round(stepX * i), y, pz + (int) Math.round(stepZ * i)));
+        }
+    }
+
     // Statistics getters
     public int getNodesEvaluated() {
         return nodesEvaluated;
@@ -0,0 +1,239 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.GoalBlock;
+import dcs.jagermeistars.talesmaker.pathfinding.path.CutoffPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.Path;
+import net.minecraft.core.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bidirectional A* for long trips to a single block.
+ *
+ * One search grows from the start over successor moves, the other from the goal over
+ * predecessor moves (the exact mirror, so falls and parkour keep their one-way costs), and
+ * each step goes to the side with the cheaper best node. The searches stop once neither
+ * can improve the cheapest meeting found, having explored about two small balls instead
+ * of one large one - the saving is largest in corridor mazes.
+ */
+public final class BidirectionalSearch {
+    /**
+     * Goals closer than this (by heuristic) are left to the plain search.
+     */
+    public static final double MIN_DISTANCE = 24.0;
+
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    // The start side borrows the plain search's arena, which sits idle meanwhile;
+    // the goal side has one of its own per search thread
+    private static final ThreadLocal<NodeArena> BACKWARD = ThreadLocal.withInitial(NodeArena::new);
+
+    private final Goal goal;
+    private final GoalBlock startGoal;
+    private final WorldContext context;
+    private final PathingConfig config;
+    private final MoveGenerator moves;
+    private final NodeArena forward;
+    private final NodeArena backward;
+
+    // Cheapest meeting so far: a cell reached from both sides
+    private float bestMeetCost = Float.POSITIVE_INFINITY;
+    private int meetForward = NodeArena.NONE;
+    private int meetBackward = NodeArena.NONE;
+
+    // Node being expanded, read by the move sinks
+    private int expanding;
+    private final MoveGenerator.MoveSink relaxForward = this::relaxForward;
+    private final MoveGenerator.MoveSink relaxBackward = this::relaxBackward;
+
+    private SearchToken token = SearchToken.NONE;
+    private int nodesEvaluated;
+
+    private BidirectionalSearch(Goal goal, BlockPos start, WorldContext context) {
+        this.goal = goal;
+        this.startGoal = new GoalBlock(start);
+        this.context = context;
+        this.config = context.getConfig();
+        this.moves = new MoveGenerator(context);
+        this.forward = AbstractPathfinder.threadArena();
+        this.backward = BACKWARD.get();
+    }
+
+    /**
+     * Check if a request suits a bidirectional search: a single goal block far enough away.
+     * Whether the goal block can be stood on is only checked by the search.
+     */
+    public static boolean applies(Goal goal, BlockPos start, PathingConfig config) {
+        return config.isBidirectional() && !config.isAnyAngleSearch()
+                && goal instanceof GoalBlock && goal.heuristic(start) >= MIN_DISTANCE;
+    }
+
+    /**
+     * Search from both ends.
+     *
+     * @return the path, a partial path from the start side if out of budget, or null if
+     *         none was found, the goal block can't be stood on, or the search was canceled
+     */
+    @Nullable
+    public static IPath calculate(Goal goal, BlockPos start, WorldContext context, SearchToken token,
+                                  int maxNodes, long maxTimeMs) {
+        if (!(goal instanceof GoalBlock block) || !context.canStandAt(block.getX(), block.getY(), block.getZ())) {
+            return null;
+        }
+        BidirectionalSearch search = new BidirectionalSearch(goal, start, context);
+        search.token = token;
+        return search.run(start, block.getBlockPos(), maxNodes, maxTimeMs);
+    }
+
+    @Nullable
+    private IPath run(BlockPos start, BlockPos end, int maxNodes, long maxTimeMs) {
+        forward.clear();
+        backward.clear();
+        BinaryHeapOpenSet forwardOpen = forward.getOpenSet();
+        BinaryHeapOpenSet backwardOpen = backward.getOpenSet();
+
+        int startNode = forward.getOrCreate(start.getX(), start.getY(), start.getZ());
+        forward.setGCost(startNode, 0);
+        forward.setHCost(startNode, (float) goal.heuristic(start));
+        forwardOpen.insert(startNode);
+
+        int endNode = backward.getOrCreate(end.getX(), end.getY(), end.getZ());
+        backward.setGCost(endNode, 0);
+        backward.setHCost(endNode, (float) startGoal.heuristic(end));
+        backwardOpen.insert(endNode);
+
+        long startTime = System.nanoTime();
+        long fetchWaitAtStart = context.getFetchWaitNanos();
+        long maxTimeNanos = maxTimeMs * 1_000_000L;
+        int bestNode = startNode;
+        float bestHeuristic = forward.getHCost(startNode);
+
+        while (!forwardOpen.isEmpty() && !backwardOpen.isEmpty()) {
+            if ((nodesEvaluated & (TIME_CHECK_INTERVAL - 1)) == 0) {
+                if (token.isCanceled()) {
+                    return null;
+                }
+                if (System.nanoTime() - startTime - (context.getFetchWaitNanos() - fetchWaitAtStart) > maxTimeNanos) {
+                    break;
+                }
+            }
+            if (nodesEvaluated >= maxNodes) {
+                break;
+            }
+
+            float forwardF = forward.getFCost(forwardOpen.peek());
+            float backwardF = backward.getFCost(backwardOpen.peek());
+            if (Math.max(forwardF, backwardF) >= bestMeetCost) {
+                // No cheaper meeting is left on either side
+                return createPath();
+            }
+
+            nodesEvaluated++;
+            if (forwardF <= backwardF) {
+                int current = forwardOpen.poll();
+                if (forward.getHCost(current) < bestHeuristic) {
+                    bestHeuristic = forward.getHCost(current);
+                    bestNode = current;
+                }
+                expanding = current;
+                moves.successors(forward.getX(current), forward.getY(current), forward.getZ(current),
+                        relaxForward);
+            } else {
+                int current = backwardOpen.poll();
+                expanding = current;
+                moves.predecessors(backward.getX(current), backward.getY(current), backward.getZ(current),
+                        relaxBackward);
+            }
+        }
+
+        if (meetForward != NodeArena.NONE) {
+            // Out of budget (or one side exhausted) after the sides met
+            return createPath();
+        }
+        if (bestNode != startNode) {
+            List<BlockPos> positions = chain(forward, bestNode);
+            Collections.reverse(positions);
+            return new CutoffPath(positions, Collections.emptyList(), goal, forward.getGCost(bestNode));
+        }
+        return null;
+    }
+
+    private void relaxForward(int x, int y, int z, double cost) {
+        float newG = forward.getGCost(expanding) + (float) cost;
+        int node = forward.getOrCreate(x, y, z);
+        if (newG >= forward.getGCost(node)) {
+            return;
+        }
+        forward.setGCost(node, newG);
+        forward.setHCost(node, (float) goal.heuristic(x, y, z));
+        forward.setParent(node, expanding);
+        if (forward.isInHeap(node)) {
+            forward.getOpenSet().update(node);
+        } else {
+            forward.getOpenSet().insert(node);
+        }
+
+        int other = backward.find(x, y, z);
+        if (other != NodeArena.NONE && newG + backward.getGCost(other) < bestMeetCost) {
+            bestMeetCost = newG + backward.getGCost(other);
+            meetForward = node;
+            meetBackward = other;
+        }
+    }
+
+    private void relaxBackward(int x, int y, int z, double cost) {
+        float newG = backward.getGCost(expanding) + (float) cost;
+        int node = backward.getOrCreate(x, y, z);
+        if (newG >= backward.getGCost(node)) {
+            return;
+        }
+        backward.setGCost(node, newG);
+        backward.setHCost(node, (float) startGoal.heuristic(x, y, z));
+        backward.setParent(node, expanding);
+        if (backward.isInHeap(node)) {
+            backward.getOpenSet().update(node);
+        } else {
+            backward.getOpenSet().insert(node);
+        }
+
+        int other = forward.find(x, y, z);
+        if (other != NodeArena.NONE && newG + forward.getGCost(other) < bestMeetCost) {
+            bestMeetCost = newG + forward.getGCost(other);
+            meetForward = other;
+            meetBackward = node;
+        }
+    }
+
+    /**
+     * Join the start side's chain to the meeting cell with the goal side's chain from it.
+     */
+    private IPath createPath() {
+        List<BlockPos> positions = chain(forward, meetForward);
+        Collections.reverse(positions);
+        List<BlockPos> toGoal = chain(backward, meetBackward);
+        positions.addAll(toGoal.subList(1, toGoal.size()));
+        if (positions.size() > config.getMaxPathLength()) {
+            positions = positions.subList(0, config.getMaxPathLength());
+            return new CutoffPath(positions, Collections.emptyList(), goal, bestMeetCost);
+        }
+        return new Path(positions, Collections.emptyList(), goal, bestMeetCost, true);
+    }
+
+    /**
+     * Follow parents from a node to its side's root.
+     */
+    private static List<BlockPos> chain(NodeArena arena, int node) {
+        List<BlockPos> positions = new ArrayList<>();
+        for (int current = node; current != NodeArena.NONE; current = arena.getParent(current)) {
+            positions.add(arena.getPos(current));
+        }
+        return positions;
+    }
+}
@@ -3,19 +3,22 @@ package dcs.jagermeistars.talesmaker.pathfinding.calc;
 /**
  * Binary heap implementation for efficient open set management in A*.
  * Provides O(log n) insert, poll, and update operations.
+ * Holds node indices of a {@link NodeArena}; each node's heap slot is tracked in the arena.
  */
 public class BinaryHeapOpenSet {
-    private PathNode[] heap;
+    private final NodeArena arena;
+    private int[] heap;
     private int size;
 
     private static final int DEFAULT_CAPACITY = 1024;
 
-    public BinaryHeapOpenSet() {
-        this(DEFAULT_CAPACITY);
+    public BinaryHeapOpenSet(NodeArena arena) {
+        this(arena, DEFAULT_CAPACITY);
     }
 
-    public BinaryHeapOpenSet(int initialCapacity) {
-        this.heap = new PathNode[initialCapacity];
+    public BinaryHeapOpenSet(NodeArena arena, int initialCapacity) {
+        this.arena = arena;
+        this.heap = new int[initialCapacity];
         this.size = 0;
     }
 
@@ -23,12 +26,12 @@ public class BinaryHeapOpenSet {
      * Insert a node into the heap.
      * O(log n)
      */
-    public void insert(PathNode node) {
+    public void insert(int node) {
         if (size >= heap.length) {
             grow();
         }
         heap[size] = node;
-        node.setHeapIndex(size);
+        arena.setHeapIndex(node, size);
         size++;
         siftUp(size - 1);
     }
@@ -36,22 +39,21 @@ public class BinaryHeapOpenSet {
     /**
      * Remove and return the node with lowest fCost.
      * O(log n)
+     *
+     * @return node index, or NodeArena.NONE if empty
      */
-    public PathNode poll() {
+    public int poll() {
         if (size == 0) {
-            return null;
+            return NodeArena.NONE;
         }
-        PathNode result = heap[0];
-        result.setHeapIndex(-1);
+        int result = heap[0];
+        arena.setHeapIndex(result, NodeArena.NONE);
 
         size--;
         if (size > 0) {
             heap[0] = heap[size];
-            heap[0].setHeapIndex(0);
-            heap[size] = null;
+            arena.setHeapIndex(heap[0], 0);
             siftDown(0);
-        } else {
-            heap[0] = null;
         }
 
         return result;
@@ -60,31 +62,33 @@ public class BinaryHeapOpenSet {
     /**
      * Peek at the node with lowest fCost without removing.
      * O(1)
+     *
+     * @return node index, or NodeArena.NONE if empty
      */
-    public PathNode peek() {
-        return size > 0 ? heap[0] : null;
+    public int peek() {
+        return size > 0 ? heap[0] : NodeArena.NONE;
     }
 
     /**
      * Update a node's position after its cost changed.
      * O(log n)
      */
-    public void update(PathNode node) {
-        int index = node.getHeapIndex();
+    public void update(int node) {
+        int index = arena.getHeapIndex(node);
         if (index < 0 || index >= size) {
             return;
         }
         // Try both directions since cost could increase or decrease
         siftUp(index);
-        siftDown(node.getHeapIndex());
+        siftDown(arena.getHeapIndex(node));
     }
 
     /**
      * Check if heap contains the node.
-     * O(1) using heapIndex
+     * O(1) using the arena's heap index
      */
-    public boolean contains(PathNode node) {
-        int index = node.getHeapIndex();
+    public boolean contains(int node) {
+        int index = arena.getHeapIndex(node);
         return index >= 0 && index < size && heap[index] == node;
     }
 
@@ -107,39 +111,57 @@ public class BinaryHeapOpenSet {
      */
     public void clear() {
         for (int i = 0; i < size; i++) {
-            if (heap[i] != null) {
-                heap[i].setHeapIndex(-1);
-                heap[i] = null;
-            }
+            arena.setHeapIndex(heap[i], NodeArena.NONE);
         }
         size = 0;
     }
 
+    /**
+     * Restore heap order after the costs of many queued nodes changed at once.
+     * O(n)
+     */
+    public void rebuild() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Compare two nodes by fCost, preferring lower hCost (closer to goal) on ties.
+     */
+    private int compare(int a, int b) {
+        int compare = Float.compare(arena.getFCost(a), arena.getFCost(b));
+        if (compare == 0) {
+            compare = Float.compare(arena.getHCost(a), arena.getHCost(b));
+        }
+        return compare;
+    }
+
     /**
      * Move node up to maintain heap property.
      */
     private void siftUp(int index) {
-        PathNode node = heap[index];
+        int node = heap[index];
         while (index > 0) {
             int parentIndex = (index - 1) / 2;
-            PathNode parent = heap[parentIndex];
-            if (node.compareTo(parent) >= 0) {
+            int parent = heap[parentIndex];
+            if (compare(node, parent) >= 0) {
                 break;
             }
             // Swap with parent
             heap[index] = parent;
-            parent.setHeapIndex(index);
+            arena.setHeapIndex(parent, index);
             index = parentIndex;
         }
         heap[index] = node;
-        node.setHeapIndex(index);
+        arena.setHeapIndex(node, index);
     }
 
     /**
      * Move node down to maintain heap property.
      */
     private void siftDown(int index) {
-        PathNode node = heap[index];
+        int node = heap[index];
         int half = size / 2;
 
         while (index < half) {
@@ -148,29 +170,29 @@ public class BinaryHeapOpenSet {
             int smallestChild = leftChild;
 
             // Find smaller child
-            if (rightChild < size && heap[rightChild].compareTo(heap[leftChild]) < 0) {
+            if (rightChild < size && compare(heap[rightChild], heap[leftChild]) < 0) {
                 smallestChild = rightChild;
             }
 
-            if (node.compareTo(heap[smallestChild]) <= 0) {
+            if (compare(node, heap[smallestChild]) <= 0) {
                 break;
             }
 
             // Swap with smaller child
             heap[index] = heap[smallestChild];
-            heap[smallestChild].setHeapIndex(index);
+            arena.setHeapIndex(heap[smallestChild], index);
             index = smallestChild;
         }
         heap[index] = node;
-        node.setHeapIndex(index);
+        arena.setHeapIndex(node, index);
     }
 
     /**
      * Double the heap capacity.
      */
     private void grow() {
-        PathNode[] newHeap = new PathNode[heap.length * 2];
+        int[] newHeap = new int[heap.length * 2];
         System.arraycopy(heap, 0, newHeap, 0, heap.length);
         heap = newHeap;
     }
-}
\ No newline at end of file
+}
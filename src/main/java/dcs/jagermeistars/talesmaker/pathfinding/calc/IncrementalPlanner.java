@@ -0,0 +1,271 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.RegionSnapshot;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionSnapshot;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+
+import java.util.Arrays;
+
+/**
+ * Incremental planner for repeated searches towards a moving goal (follow mode).
+ *
+ * Keeps the A* tree of the previous search, Fringe-Retrieving A* style. On the next
+ * request the tree is re-rooted at the NPC's new cell: the subtree below that cell is
+ * kept (costs shifted so the new start has g = 0), everything else is dropped, and so
+ * is every node near a section that changed since it was searched - any section its
+ * moves read. The kept open nodes, plus closed nodes whose moves now lead outside the
+ * kept tree, are re-keyed for the new goal and the search continues from there. A
+ * repath after a short target move then only expands the cells around the change
+ * instead of the whole path.
+ *
+ * The calculator drops its planner when follow stops or the target changes.
+ *
+ * One planner per calculator. Searches are serialized, since a superseded search may
+ * still be finishing when the next one starts.
+ */
+public class IncrementalPlanner {
+    // Trees larger than this are dropped rather than carried over
+    private static final int MAX_TREE_NODES = 16384;
+
+    // Node states while re-rooting
+    private static final byte UNRESOLVED = 0;
+    private static final byte KEEP = 1;
+    private static final byte DROP = 2;
+
+    // Current tree and the spare arena the kept subtree is copied into
+    private NodeArena arena = new NodeArena();
+    private NodeArena spare = new NodeArena();
+
+    // Section versions the current tree was built from
+    private final Long2LongOpenHashMap treeVersions = new Long2LongOpenHashMap();
+
+    // Entity size the tree was built for
+    private float treeWidth = -1;
+    private float treeHeight = -1;
+
+    // Statistics
+    private int lastReusedNodes;
+
+    public IncrementalPlanner() {
+        treeVersions.defaultReturnValue(SectionSnapshot.NO_VERSION);
+    }
+
+    /**
+     * Find a path, reusing the previous search tree where it is still valid.
+     *
+     * @param goal      the goal to reach
+     * @param start     starting position
+     * @param context   world data captured for this request
+     * @param token     cancellation token
+     * @param maxNodes  maximum nodes to evaluate in this call
+     * @param maxTimeMs maximum time in milliseconds
+     * @return the calculated path, or null if none was found or the search was canceled
+     */
+    public synchronized IPath plan(Goal goal, BlockPos start, WorldContext context, SearchToken token,
+                                   int maxNodes, long maxTimeMs) {
+        PathingConfig config = context.getConfig();
+        int root = NodeArena.NONE;
+        if (config.getEntityWidth() == treeWidth && config.getEntityHeight() == treeHeight
+                && arena.size() > 0 && arena.size() <= MAX_TREE_NODES) {
+            root = reroot(goal, start, context);
+        }
+
+        AbstractPathfinder pathfinder = new AbstractPathfinder(goal, context, arena);
+        pathfinder.setToken(token);
+        IPath path;
+        if (root == NodeArena.NONE) {
+            lastReusedNodes = 0;
+            path = pathfinder.calculate(start, maxNodes, maxTimeMs);
+        } else {
+            lastReusedNodes = arena.size();
+            path = pathfinder.resume(root, start, maxNodes, maxTimeMs);
+        }
+
+        treeWidth = config.getEntityWidth();
+        treeHeight = config.getEntityHeight();
+        recordVersions(context);
+
+        TalesMaker.LOGGER.debug("[Pathfinding] Incremental search: reused={}, evaluated={}, tree={}",
+                lastReusedNodes, pathfinder.getNodesEvaluated(), arena.size());
+        return path;
+    }
+
+    /**
+     * Move the subtree rooted at the start cell into the spare arena and prime its open set.
+     *
+     * @return the new root node, or NONE if nothing can be reused
+     */
+    private int reroot(Goal goal, BlockPos start, WorldContext context) {
+        int oldRoot = arena.find(start.getX(), start.getY(), start.getZ());
+        if (oldRoot == NodeArena.NONE || arena.getGCost(oldRoot) == Float.POSITIVE_INFINITY) {
+            return NodeArena.NONE;
+        }
+
+        RegionSnapshot region = context.getSnapshot();
+        int horizontal = MoveGenerator.horizontalReach(context.getConfig());
+        int vertical = MoveGenerator.verticalReach(context.getConfig());
+        Long2LongOpenHashMap currentVersions = new Long2LongOpenHashMap();
+        currentVersions.defaultReturnValue(Long.MIN_VALUE);
+
+        // Resolve which nodes descend from the new root through unchanged cells
+        int size = arena.size();
+        byte[] states = new byte[size];
+        states[oldRoot] = isUnchanged(oldRoot, region, horizontal, vertical, currentVersions) ? KEEP : DROP;
+        if (states[oldRoot] == DROP) {
+            return NodeArena.NONE;
+        }
+        int[] chain = new int[64];
+        for (int node = 0; node < size; node++) {
+            int length = 0;
+            int current = node;
+            while (current != NodeArena.NONE && states[current] == UNRESOLVED) {
+                if (length == chain.length) {
+                    chain = Arrays.copyOf(chain, length * 2);
+                }
+                chain[length++] = current;
+                current = arena.getParent(current);
+            }
+            // Reaching the old root's ancestors (or no parent) without passing the new root drops the chain
+            byte state = current == NodeArena.NONE ? DROP : states[current];
+            for (int i = length - 1; i >= 0; i--) {
+                int chained = chain[i];
+                if (state == KEEP && !isUnchanged(chained, region, horizontal, vertical, currentVersions)) {
+                    state = DROP;
+                }
+                states[chained] = state;
+            }
+        }
+
+        // Copy kept nodes, shifting costs so the new root starts at 0
+        spare.clear();
+        float rootG = arena.getGCost(oldRoot);
+        int[] remap = new int[size];
+        for (int node = 0; node < size; node++) {
+            if (states[node] != KEEP) {
+                remap[node] = NodeArena.NONE;
+                continue;
+            }
+            int x = arena.getX(node);
+            int y = arena.getY(node);
+            int z = arena.getZ(node);
+            int copy = spare.getOrCreate(x, y, z);
+            spare.setGCost(copy, arena.getGCost(node) - rootG);
+            spare.setHCost(copy, (float) goal.heuristic(x, y, z));
+            remap[node] = copy;
+        }
+        for (int node = 0; node < size; node++) {
+            if (remap[node] != NodeArena.NONE && node != oldRoot) {
+                spare.setParent(remap[node], remap[arena.getParent(node)]);
+            }
+        }
+
+        // Open set: previously open nodes, closed nodes at the goal or with a successor not kept
+        BinaryHeapOpenSet open = spare.getOpenSet();
+        MoveGenerator moves = new MoveGenerator(context);
+        for (int node = 0; node < size; node++) {
+            int copy = remap[node];
+            if (copy == NodeArena.NONE) {
+                continue;
+            }
+            if (arena.isInHeap(node)
+                    || goal.isAtGoal(arena.getX(node), arena.getY(node), arena.getZ(node))
+                    || hasLostSuccessor(node, states, moves)) {
+                open.insert(copy);
+            }
+        }
+
+        NodeArena previous = arena;
+        arena = spare;
+        spare = previous;
+        spare.clear();
+        return remap[oldRoot];
+    }
+
+    /**
+     * Check if a closed node leads to a cell outside the kept tree, by any move - falls,
+     * climbs, jumps and parkour included - so it is expanded again. That covers cells just
+     * dropped and cells the old tree never had, reached by a move that has since opened up:
+     * a closed node already generated all of its old successors.
+     */
+    private boolean hasLostSuccessor(int node, byte[] states, MoveGenerator moves) {
+        boolean[] lost = new boolean[1];
+        moves.successors(arena.getX(node), arena.getY(node), arena.getZ(node), (x, y, z, cost) -> {
+            int successor = arena.find(x, y, z);
+            if (successor == NodeArena.NONE || states[successor] != KEEP) {
+                lost[0] = true;
+            }
+        });
+        return lost[0];
+    }
+
+    /**
+     * Check that every section a node's moves read is unchanged.
+     */
+    private boolean isUnchanged(int node, RegionSnapshot region, int horizontal, int vertical,
+                                Long2LongOpenHashMap currentVersions) {
+        int x = arena.getX(node);
+        int y = arena.getY(node);
+        int z = arena.getZ(node);
+        for (int sx = (x - horizontal) >> 4; sx <= (x + horizontal) >> 4; sx++) {
+            for (int sy = (y - vertical) >> 4; sy <= (y + vertical) >> 4; sy++) {
+                for (int sz = (z - horizontal) >> 4; sz <= (z + horizontal) >> 4; sz++) {
+                    if (!isSectionUnchanged(sx, sy, sz, region, currentVersions)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isSectionUnchanged(int sx, int sy, int sz, RegionSnapshot region,
+                                       Long2LongOpenHashMap currentVersions) {
+        long key = SectionPos.asLong(sx, sy, sz);
+        long current = currentVersions.get(key);
+        if (current == Long.MIN_VALUE) {
+            current = region.peekSectionVersion(sx, sy, sz);
+            currentVersions.put(key, current);
+        }
+        long recorded = treeVersions.get(key);
+        return recorded != SectionSnapshot.NO_VERSION && recorded == current;
+    }
+
+    /**
+     * Remember the versions of every section the tree depends on, without fetching any.
+     */
+    private void recordVersions(WorldContext context) {
+        treeVersions.clear();
+        RegionSnapshot region = context.getSnapshot();
+        int horizontal = MoveGenerator.horizontalReach(context.getConfig());
+        int vertical = MoveGenerator.verticalReach(context.getConfig());
+        for (int node = 0; node < arena.size(); node++) {
+            int x = arena.getX(node);
+            int y = arena.getY(node);
+            int z = arena.getZ(node);
+            for (int sx = (x - horizontal) >> 4; sx <= (x + horizontal) >> 4; sx++) {
+                for (int sy = (y - vertical) >> 4; sy <= (y + vertical) >> 4; sy++) {
+                    for (int sz = (z - horizontal) >> 4; sz <= (z + horizontal) >> 4; sz++) {
+                        long key = SectionPos.asLong(sx, sy, sz);
+                        if (!treeVersions.containsKey(key)) {
+                            treeVersions.put(key, region.peekSectionVersion(sx, sy, sz));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of nodes carried over into the last search.
+     */
+    public int getLastReusedNodes() {
+        return lastReusedNodes;
+    }
+}
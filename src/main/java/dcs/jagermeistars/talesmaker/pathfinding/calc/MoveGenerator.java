@@ -0,0 +1,358 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+
+/**
+ * Movement rules of the fine search: which cells one move leads to, and at what cost.
+ *
+ * {@link #successors} lists the moves out of a cell, {@link #predecessors} the moves into it,
+ * for searches that run backwards from the goal. The two must stay exact mirrors - a cell
+ * reported as a predecessor of c must have c among its successors with the same cost.
+ */
+public final class MoveGenerator {
+    private final WorldContext context;
+    private final PathingConfig config;
+    private final int height;
+
+    /**
+     * Receives the cells reached by moves.
+     */
+    @FunctionalInterface
+    public interface MoveSink {
+        void accept(int x, int y, int z, double cost);
+    }
+
+    public MoveGenerator(WorldContext context) {
+        this.context = context;
+        this.config = context.getConfig();
+        this.height = (int) Math.ceil(config.getEntityHeight());
+    }
+
+    /**
+     * Get how far on x and z a move from or into a cell may read blocks: a parkour jump
+     * plus half the body.
+     */
+    public static int horizontalReach(PathingConfig config) {
+        return 2 + (int) Math.ceil(config.getEntityWidth() / 2);
+    }
+
+    /**
+     * Get how far up or down a move from or into a cell may read blocks: the deepest fall
+     * or a jump's headroom.
+     */
+    public static int verticalReach(PathingConfig config) {
+        return Math.max(config.getMaxFallDistance() + 1, (int) Math.ceil(config.getEntityHeight()) + 2);
+    }
+
+    /**
+     * Report every cell reachable from (x, y, z) in one move.
+     */
+    public void successors(int x, int y, int z, MoveSink sink) {
+        // Cardinal directions
+        tryMove(x + 1, y, z, ActionCosts.WALK, sink);
+        tryMove(x - 1, y, z, ActionCosts.WALK, sink);
+        tryMove(x, y, z + 1, ActionCosts.WALK, sink);
+        tryMove(x, y, z - 1, ActionCosts.WALK, sink);
+
+        // Diagonal directions (4)
+        if (canMoveDiagonal(x, y, z, 1, 1)) {
+            tryMove(x + 1, y, z + 1, ActionCosts.DIAGONAL, sink);
+        }
+        if (canMoveDiagonal(x, y, z, 1, -1)) {
+            tryMove(x + 1, y, z - 1, ActionCosts.DIAGONAL, sink);
+        }
+        if (canMoveDiagonal(x, y, z, -1, 1)) {
+            tryMove(x - 1, y, z + 1, ActionCosts.DIAGONAL, sink);
+        }
+        if (canMoveDiagonal(x, y, z, -1, -1)) {
+            tryMove(x - 1, y, z - 1, ActionCosts.DIAGONAL, sink);
+        }
+
+        // Jump up (in all 4 cardinal directions)
+        if (context.hasHeadroom(x, y, z, height + 1)) {
+            tryJumpUp(x + 1, y + 1, z, sink);
+            tryJumpUp(x - 1, y + 1, z, sink);
+            tryJumpUp(x, y + 1, z + 1, sink);
+            tryJumpUp(x, y + 1, z - 1, sink);
+        }
+
+        // Step/fall down (in all 4 cardinal directions)
+        tryDescend(x + 1, y, z, sink);
+        tryDescend(x - 1, y, z, sink);
+        tryDescend(x, y, z + 1, sink);
+        tryDescend(x, y, z - 1, sink);
+
+        // Climb up/down (if on climbable)
+        if (context.isClimbable(x, y, z)) {
+            tryMove(x, y + 1, z, ActionCosts.CLIMB, sink);
+            tryMove(x, y - 1, z, ActionCosts.CLIMB, sink);
+        }
+
+        // Parkour jumps (2-block gaps in cardinal directions)
+        if (config.canParkour()) {
+            tryParkour(x, y, z, 1, 0, sink);
+            tryParkour(x, y, z, -1, 0, sink);
+            tryParkour(x, y, z, 0, 1, sink);
+            tryParkour(x, y, z, 0, -1, sink);
+        }
+    }
+
+    /**
+     * Report every standable cell that reaches (x, y, z) in one move, with the cost of that move.
+     */
+    public void predecessors(int x, int y, int z, MoveSink sink) {
+        // Every move ends on a standable cell
+        if (!context.canStandAt(x, y, z)) {
+            return;
+        }
+
+        // Walks and diagonals into this cell
+        double walk = arrivalCost(x, y, z, ActionCosts.WALK);
+        if (walk >= 0) {
+            reportFrom(x - 1, y, z, walk, sink);
+            reportFrom(x + 1, y, z, walk, sink);
+            reportFrom(x, y, z - 1, walk, sink);
+            reportFrom(x, y, z + 1, walk, sink);
+        }
+        double diagonal = arrivalCost(x, y, z, ActionCosts.DIAGONAL);
+        if (diagonal >= 0) {
+            for (int dx = -1; dx <= 1; dx += 2) {
+                for (int dz = -1; dz <= 1; dz += 2) {
+                    if (canMoveDiagonal(x - dx, y, z - dz, dx, dz)) {
+                        reportFrom(x - dx, y, z - dz, diagonal, sink);
+                    }
+                }
+            }
+        }
+
+        // Jumps up from one block lower
+        reportJumpFrom(x - 1, y - 1, z, sink);
+        reportJumpFrom(x + 1, y - 1, z, sink);
+        reportJumpFrom(x, y - 1, z - 1, sink);
+        reportJumpFrom(x, y - 1, z + 1, sink);
+
+        // Steps and falls from higher up: the first standable cell below a neighbour's
+        // level is where a descent lands, so stop at the first standable cell above this one
+        for (int fallDist = 1; fallDist <= config.getMaxFallDistance(); fallDist++) {
+            if (context.canStandAt(x, y + fallDist, z)) {
+                break;
+            }
+            double cost = fallDist == 1 ? ActionCosts.STEP_DOWN : ActionCosts.fallCost(fallDist);
+            reportFrom(x - 1, y + fallDist, z, cost, sink);
+            reportFrom(x + 1, y + fallDist, z, cost, sink);
+            reportFrom(x, y + fallDist, z - 1, cost, sink);
+            reportFrom(x, y + fallDist, z + 1, cost, sink);
+        }
+
+        // Climbing from the climbable cell below or above
+        double climb = arrivalCost(x, y, z, ActionCosts.CLIMB);
+        if (climb >= 0) {
+            if (context.isClimbable(x, y - 1, z)) {
+                reportFrom(x, y - 1, z, climb, sink);
+            }
+            if (context.isClimbable(x, y + 1, z)) {
+                reportFrom(x, y + 1, z, climb, sink);
+            }
+        }
+
+        // Parkour from two blocks away
+        if (config.canParkour()) {
+            reportParkourFrom(x - 2, y, z, 1, 0, sink);
+            reportParkourFrom(x + 2, y, z, -1, 0, sink);
+            reportParkourFrom(x, y, z - 2, 0, 1, sink);
+            reportParkourFrom(x, y, z + 2, 0, -1, sink);
+        }
+    }
+
+    /**
+     * Check if a cell is plain ground: standable, dry, no door, nothing to climb.
+     * Moves into a plain cell cost exactly WALK or DIAGONAL.
+     */
+    public boolean isPlain(int x, int y, int z) {
+        return context.canStandAt(x, y, z) && !context.isWater(x, y, z)
+                && !context.isDoor(x, y, z) && !context.isClimbable(x, y, z);
+    }
+
+    /**
+     * Check if only same-Y walks and diagonals lead out of a cell, to plain cells.
+     * Around a flat cell every neighbour is plain or blocks the way - no step up, drop,
+     * gap or ladder - so the terrain there is a uniform 8-connected grid.
+     */
+    public boolean isFlat(int x, int y, int z) {
+        if (!isPlain(x, y, z)) {
+            return false;
+        }
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx == 0 && dz == 0) {
+                    continue;
+                }
+                if (isPlain(x + dx, y, z + dz)) {
+                    continue;
+                }
+                if (dx != 0 && dz != 0) {
+                    // Diagonal neighbours only matter if they can be stood on
+                    if (context.canStandAt(x + dx, y, z + dz)) {
+                        return false;
+                    }
+                } else if (context.isPassable(x + dx, y, z + dz) || context.canStandAt(x + dx, y + 1, z + dz)) {
+                    // A drop, gap or step up next to the cell
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Try a basic movement to a position.
+     */
+    private void tryMove(int toX, int toY, int toZ, double baseCost, MoveSink sink) {
+        if (!context.canStandAt(toX, toY, toZ)) {
+            return;
+        }
+        double cost = arrivalCost(toX, toY, toZ, baseCost);
+        if (cost >= 0) {
+            sink.accept(toX, toY, toZ, cost);
+        }
+    }
+
+    /**
+     * Cost of a basic movement into a standable cell, or -1 if it can't be entered.
+     */
+    private double arrivalCost(int toX, int toY, int toZ, double baseCost) {
+        double cost = baseCost;
+
+        // Water penalty
+        if (context.isWater(toX, toY, toZ)) {
+            if (!config.canSwim()) return -1;
+            cost += ActionCosts.WATER_PENALTY;
+        }
+
+        // Door handling
+        if (context.isDoor(toX, toY, toZ)) {
+            if (!config.canOpenDoors() && !context.isDoorOpen(toX, toY, toZ)) {
+                return -1;
+            }
+            cost += ActionCosts.DOOR - ActionCosts.WALK;
+        }
+
+        return cost;
+    }
+
+    /**
+     * Check if diagonal movement is allowed (no corner cutting).
+     * For wide entities, diagonal movement is restricted near walls.
+     */
+    private boolean canMoveDiagonal(int x, int y, int z, int dx, int dz) {
+        float width = config.getEntityWidth();
+
+        // Standard check first: both adjacent cardinal positions are passable
+        if (!context.isPassable(x + dx, y, z) || !context.isPassable(x, y, z + dz)) {
+            return false;
+        }
+        if (!context.canStandAt(x + dx, y, z + dz)) {
+            return false;
+        }
+
+        // For wide entities, add extra check for the "inner corner"
+        // When moving diagonally past a corner, wide entity clips through it
+        if (width > 1.0f) {
+            // Check if there's a wall at the corner we're cutting
+            // The corner is at (x, z) relative to start, opposite to movement direction
+            int cornerX = x - dx;
+            int cornerZ = z - dz;
+
+            // If there's a solid block at the inner corner, don't allow diagonal
+            // This prevents wide entities from clipping through corners
+            if (context.isSolid(cornerX, y, cornerZ) || context.isSolid(cornerX, y + 1, cornerZ)) {
+                return false;
+            }
+
+            // Also check the outer corners that wide entity might hit
+            if (context.isSolid(x + dx, y, cornerZ) || context.isSolid(x + dx, y + 1, cornerZ)) {
+                return false;
+            }
+            if (context.isSolid(cornerX, y, z + dz) || context.isSolid(cornerX, y + 1, z + dz)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Try jumping up one block (headroom at the start is checked by the caller).
+     */
+    private void tryJumpUp(int toX, int toY, int toZ, MoveSink sink) {
+        // Destination must be standable
+        if (context.canStandAt(toX, toY, toZ)) {
+            sink.accept(toX, toY, toZ, ActionCosts.JUMP_UP);
+        }
+    }
+
+    /**
+     * Try stepping or falling down.
+     */
+    private void tryDescend(int toX, int toY, int toZ, MoveSink sink) {
+        // Check if we can walk directly (same level or step down via step height)
+        if (context.canStandAt(toX, toY, toZ)) {
+            // Already handled by tryMove
+            return;
+        }
+
+        // Check for fall/step down
+        for (int fallDist = 1; fallDist <= config.getMaxFallDistance(); fallDist++) {
+            int landY = toY - fallDist;
+            if (context.canStandAt(toX, landY, toZ)) {
+                double cost = fallDist == 1 ? ActionCosts.STEP_DOWN : ActionCosts.fallCost(fallDist);
+                sink.accept(toX, landY, toZ, cost);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Try a parkour jump across a gap.
+     */
+    private void tryParkour(int x, int y, int z, int dx, int dz, MoveSink sink) {
+        if (canJumpGap(x, y, z, dx, dz) && context.canStandAt(x + dx * 2, y, z + dz * 2)) {
+            sink.accept(x + dx * 2, y, z + dz * 2, ActionCosts.parkourCost(2));
+        }
+    }
+
+    /**
+     * Check the gap and headroom of a parkour jump (the landing is checked separately).
+     */
+    private boolean canJumpGap(int x, int y, int z, int dx, int dz) {
+        int gapX = x + dx;
+        int gapZ = z + dz;
+
+        // Gap must be air
+        if (!context.isPassable(gapX, y, gapZ) || context.isSolid(gapX, y - 1, gapZ)) {
+            return false; // No gap or gap has ground
+        }
+
+        // Need headroom for jump arc
+        return context.hasHeadroom(x, y, z, height + 1);
+    }
+
+    private void reportFrom(int x, int y, int z, double cost, MoveSink sink) {
+        if (context.canStandAt(x, y, z)) {
+            sink.accept(x, y, z, cost);
+        }
+    }
+
+    private void reportJumpFrom(int x, int y, int z, MoveSink sink) {
+        if (context.hasHeadroom(x, y, z, height + 1)) {
+            reportFrom(x, y, z, ActionCosts.JUMP_UP, sink);
+        }
+    }
+
+    private void reportParkourFrom(int x, int y, int z, int dx, int dz, MoveSink sink) {
+        if (canJumpGap(x, y, z, dx, dz)) {
+            reportFrom(x, y, z, ActionCosts.parkourCost(2), sink);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for pathfinding nodes.
+ * A node is an int index into parallel coordinate/cost/link arrays, looked up by packed
+ * position in a primitive open-addressing table - no per-node objects, no boxed keys.
+ * Arrays only grow, so an arena reused across searches stops allocating after warm-up.
+ *
+ * Not thread-safe - each search thread uses its own arena.
+ */
+public final class NodeArena {
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Node fields
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private float[] gCosts;
+    private float[] hCosts;
+    private int[] parents;
+    private int[] heapIndices;
+    private int size;
+
+    // Packed position -> node index
+    private final Long2IntOpenHashMap index;
+
+    // Open set over this arena's nodes
+    private final BinaryHeapOpenSet openSet;
+
+    public NodeArena() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public NodeArena(int initialCapacity) {
+        this.xs = new int[initialCapacity];
+        this.ys = new int[initialCapacity];
+        this.zs = new int[initialCapacity];
+        this.gCosts = new float[initialCapacity];
+        this.hCosts = new float[initialCapacity];
+        this.parents = new int[initialCapacity];
+        this.heapIndices = new int[initialCapacity];
+        this.index = new Long2IntOpenHashMap(initialCapacity);
+        this.index.defaultReturnValue(NONE);
+        this.openSet = new BinaryHeapOpenSet(this);
+    }
+
+    /**
+     * Get the node at a position, creating it (with infinite g cost) if needed.
+     */
+    public int getOrCreate(int x, int y, int z) {
+        long key = BlockPos.asLong(x, y, z);
+        int node = index.get(key);
+        if (node != NONE) {
+            return node;
+        }
+        if (size == xs.length) {
+            grow();
+        }
+        node = size++;
+        xs[node] = x;
+        ys[node] = y;
+        zs[node] = z;
+        gCosts[node] = Float.POSITIVE_INFINITY;
+        hCosts[node] = 0;
+        parents[node] = NONE;
+        heapIndices[node] = NONE;
+        index.put(key, node);
+        return node;
+    }
+
+    /**
+     * Find the node at a position.
+     *
+     * @return node index, or NONE if no node exists there
+     */
+    public int find(int x, int y, int z) {
+        return index.get(BlockPos.asLong(x, y, z));
+    }
+
+    /**
+     * Drop all nodes, keeping the allocated capacity.
+     */
+    public void clear() {
+        openSet.clear();
+        index.clear();
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        gCosts = Arrays.copyOf(gCosts, capacity);
+        hCosts = Arrays.copyOf(hCosts, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        heapIndices = Arrays.copyOf(heapIndices, capacity);
+    }
+
+    public int getX(int node) { return xs[node]; }
+    public int getY(int node) { return ys[node]; }
+    public int getZ(int node) { return zs[node]; }
+
+    public float getGCost(int node) { return gCosts[node]; }
+    public void setGCost(int node, float gCost) { gCosts[node] = gCost; }
+
+    public float getHCost(int node) { return hCosts[node]; }
+    public void setHCost(int node, float hCost) { hCosts[node] = hCost; }
+
+    /**
+     * Get the total estimated cost (f = g + h).
+     */
+    public float getFCost(int node) { return gCosts[node] + hCosts[node]; }
+
+    public int getParent(int node) { return parents[node]; }
+    public void setParent(int node, int parent) { parents[node] = parent; }
+
+    public int getHeapIndex(int node) { return heapIndices[node]; }
+    void setHeapIndex(int node, int heapIndex) { heapIndices[node] = heapIndex; }
+
+    /**
+     * Check if a node is in the open set.
+     */
+    public boolean isInHeap(int node) {
+        return heapIndices[node] >= 0;
+    }
+
+    public BlockPos getPos(int node) {
+        return new BlockPos(xs[node], ys[node], zs[node]);
+    }
+
+    /**
+     * Get the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    public BinaryHeapOpenSet getOpenSet() {
+        return openSet;
+    }
+}
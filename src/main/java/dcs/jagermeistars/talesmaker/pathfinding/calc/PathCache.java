@@ -0,0 +1,117 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionStamps;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.GoalBlock;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.GoalNear;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.SmoothPath;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.LevelEvent;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Complete smoothed paths shared between NPCs, least recently used first out.
+ *
+ * Village crowds ask for the same errands over and over - door to plaza and back. A path is
+ * keyed by its start cell, its goal, the entity's size and the config values that change
+ * which moves exist, and served again until a section it was found through changes.
+ */
+@EventBusSubscriber(modid = TalesMaker.MODID)
+public final class PathCache {
+    private static final int MAX_ENTRIES = 512;
+
+    // Guarded by itself; read on the main thread, filled on search threads
+    private static final LinkedHashMap<Key, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Request identity. Sizes are exact: the smoothed form is centered and line-of-sight
+     * checked for one body, so NPCs of one kind share paths but no other size does.
+     */
+    record Key(ResourceKey<Level> dimension, BlockPos start, BlockPos goal, int goalRadius,
+               float width, float height, int maxFall, int maxJump, boolean canSwim, boolean canClimb,
+               boolean canOpenDoors, boolean canParkour, boolean anyAngle) {
+    }
+
+    /**
+     * A cached path with its smoothed form and the section versions it was found at.
+     */
+    record Entry(IPath path, SmoothPath smoothed, SectionStamps stamps) {
+    }
+
+    private PathCache() {
+        // Utility class
+    }
+
+    /**
+     * Get the cache key for a request.
+     *
+     * @return the key, or null if the goal isn't a fixed block (or area around one)
+     */
+    @Nullable
+    static Key key(ResourceKey<Level> dimension, BlockPos start, Goal goal, PathingConfig config) {
+        BlockPos target;
+        int radius;
+        if (goal instanceof GoalBlock block) {
+            target = block.getBlockPos();
+            radius = 0;
+        } else if (goal instanceof GoalNear near) {
+            target = near.getBlockPos();
+            radius = near.getRadius();
+        } else {
+            return null;
+        }
+        return new Key(dimension, start.immutable(), target, radius,
+                config.getEntityWidth(), config.getEntityHeight(),
+                config.getMaxFallDistance(), config.getMaxJumpHeight(), config.canSwim(), config.canClimb(),
+                config.canOpenDoors(), config.canParkour(), config.isAnyAngleSearch());
+    }
+
+    /**
+     * Get a cached path, dropping it if a block along it has changed.
+     * MUST be called from the main thread.
+     */
+    @Nullable
+    static Entry get(Key key) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(key);
+            if (entry != null && !entry.stamps().isCurrent(key.dimension())) {
+                ENTRIES.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Remember a complete path.
+     */
+    static void put(Key key, IPath path, SmoothPath smoothed, SectionStamps stamps) {
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, new Entry(path, smoothed, stamps));
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level && !level.isClientSide()) {
+            synchronized (ENTRIES) {
+                ENTRIES.keySet().removeIf(key -> key.dimension().equals(level.dimension()));
+            }
+        }
+    }
+}
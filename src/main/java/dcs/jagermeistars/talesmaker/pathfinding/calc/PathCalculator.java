@@ -2,33 +2,54 @@ package dcs.jagermeistars.talesmaker.pathfinding.calc;
 
 import dcs.jagermeistars.talesmaker.TalesMaker;
 import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionStamps;
 import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.flow.FlowFieldService;
 import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.GoalFollow;
+import dcs.jagermeistars.talesmaker.pathfinding.hierarchy.RoutePlanner;
+import dcs.jagermeistars.talesmaker.pathfinding.hierarchy.SectionGraph;
+import dcs.jagermeistars.talesmaker.pathfinding.landmark.LandmarkHeuristic;
+import dcs.jagermeistars.talesmaker.pathfinding.movement.PassageAnalyzer;
 import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.PathSmoother;
+import dcs.jagermeistars.talesmaker.pathfinding.path.SmoothPath;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
 
-import java.util.concurrent.*;
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
  * Asynchronous path calculator.
- * Runs pathfinding in a separate thread to avoid blocking the main game thread.
+ * Runs pathfinding on the shared {@link PathWorkerPool} to avoid blocking the main game thread,
+ * or in bounded slices on it with {@link TimeSlicedScheduler} when that is enabled.
  */
 public class PathCalculator {
-    // Single thread executor for pathfinding
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread thread = new Thread(r, "TalesMaker-Pathfinding");
-        thread.setDaemon(true);
-        thread.setPriority(Thread.MIN_PRIORITY);
-        return thread;
-    });
-
     private final PathingConfig config;
-    private CompletableFuture<IPath> currentCalculation;
+    private CompletableFuture<SearchResult> currentCalculation;
+    // Keeps the follow search tree between repaths (created on first follow request)
+    private IncrementalPlanner followPlanner;
+    private SearchToken currentToken;
+    // Incremented per request; only the latest generation may deliver a result
+    private volatile long generation;
+    // Whether the last delivered search ran into unloaded chunks
+    private boolean lastTouchedUnloaded;
+    // Section versions the last delivered path was found at
+    private SectionStamps lastPathStamps;
     private volatile boolean canceled = false;
 
+    /**
+     * A found path and, if the search produced it directly, its smoothed form.
+     */
+    private record SearchResult(IPath path, @Nullable SmoothPath smoothed) {
+    }
+
     public PathCalculator(PathingConfig config) {
         this.config = config;
     }
@@ -61,41 +82,373 @@ public class PathCalculator {
      */
     public void requestPath(Goal goal, BlockPos start, Level level, PathingConfig pathConfig,
                             Consumer<IPath> onComplete) {
+        requestPath(goal, start, level, pathConfig, PathWorkerPool.DEFAULT_DELAY_NANOS, onComplete);
+    }
+
+    /**
+     * Request a new path calculation with custom config and scheduling priority.
+     *
+     * @param goal          the goal to reach
+     * @param start         starting position
+     * @param level         the world
+     * @param pathConfig    pathfinding configuration
+     * @param priorityDelay queue delay in nanoseconds, see {@link PathWorkerPool#priorityDelayNanos}
+     * @param onComplete    callback when path is ready
+     */
+    public void requestPath(Goal goal, BlockPos start, Level level, PathingConfig pathConfig,
+                            long priorityDelay, Consumer<IPath> onComplete) {
+        submit(goal, start, level, pathConfig, priorityDelay, false, null, null,
+                (path, smoothed) -> onComplete.accept(path));
+    }
+
+    /**
+     * Request a path that is also smoothed on the worker, against the same world copy the
+     * search used, so the main thread receives it ready to walk.
+     *
+     * @param goal          the goal to reach
+     * @param start         starting position
+     * @param level         the world
+     * @param pathConfig    pathfinding configuration
+     * @param priorityDelay queue delay in nanoseconds, see {@link PathWorkerPool#priorityDelayNanos}
+     * @param exactTarget   exact final position replacing the last waypoint, or null
+     * @param onPrefix      callback with the smoothed start of the path while a long search goes on
+     *                      (see {@link PathingConfig#getPrefixNodes()}), or null to wait for the full path
+     * @param onComplete    callback with the block path and its smoothed form (both null if none was found)
+     */
+    public void requestSmoothPath(Goal goal, BlockPos start, Level level, PathingConfig pathConfig,
+                                  long priorityDelay, @Nullable Vec3 exactTarget,
+                                  @Nullable Consumer<SmoothPath> onPrefix,
+                                  BiConsumer<IPath, SmoothPath> onComplete) {
+        submit(goal, start, level, pathConfig, priorityDelay, true, exactTarget, onPrefix, onComplete);
+    }
+
+    private void submit(Goal liveGoal, BlockPos start, Level level, PathingConfig pathConfig, long priorityDelay,
+                        boolean smooth, @Nullable Vec3 exactTarget, @Nullable Consumer<SmoothPath> onPrefix,
+                        BiConsumer<IPath, SmoothPath> onComplete) {
+        // The worker only ever sees the goal as it is now; entities and patrols move on without it
+        Goal goal = liveGoal.snapshot();
+
         // Cancel any existing calculation
         cancel();
         canceled = false;
 
+        // Errands walked before (by any NPC of this size) are served from the shared cache
+        PathCache.Key cacheKey = smooth && pathConfig.isSharedPathCache()
+                ? PathCache.key(level.dimension(), start, goal, pathConfig)
+                : null;
+        if (cacheKey != null) {
+            PathCache.Entry cached = PathCache.get(cacheKey);
+            if (cached != null) {
+                deliverCached(cached, level, exactTarget, onComplete);
+                return;
+            }
+        }
+
         // Capture world region on main thread
         // Use smaller radius to avoid memory issues (32 blocks = ~274k blocks max)
         WorldContext context = new WorldContext(pathConfig);
         int captureRadius = (int) Math.min(pathConfig.getMaxRange(), 32);
-        context.captureRegion(level, start, captureRadius);
+        BlockPos target = goal.getTargetPos();
+        // Routes, shared fields and the incremental planner can't pause, so searches on the
+        // server thread do without them
+        boolean sliced = TimeSlicedScheduler.isEnabled();
+        SectionGraph routeGraph = null;
+        FlowFieldService followField = null;
+        if (!sliced && pathConfig.isHierarchical() && target != null && RoutePlanner.shouldRoute(goal, start)) {
+            // Far goal: route over the section graph, sections are copied as the route needs them
+            routeGraph = SectionGraph.forConfig(level.dimension(), pathConfig);
+            context.captureRouteRegion(level, start, target, captureRadius, pathConfig.getMaxRouteRange());
+        } else if (!sliced && pathConfig.isSharedFollowField() && target != null && goal instanceof GoalFollow follow
+                && follow.isTargetValid()) {
+            // Follow: the capture must cover the shared field around the target
+            followField = FlowFieldService.forTarget(level.dimension(), follow.getTarget(), pathConfig);
+            context.captureRouteRegion(level, start, target, FlowFieldService.CAPTURE_PADDING,
+                    pathConfig.getMaxRange());
+        } else if (pathConfig.isLazyCapture()) {
+            // Only sections the search touches are copied
+            context.captureRegionLazy(level, start, captureRadius, target);
+        } else {
+            context.captureRegion(level, start, captureRadius);
+        }
 
         // Debug: Check if start position is valid
-        boolean canStandAtStart = context.canStandAt(start.getX(), start.getY(), start.getZ());
-        boolean hasGroundBelow = context.isSolid(start.getX(), start.getY() - 1, start.getZ());
-        boolean isPassableAtStart = context.isPassable(start.getX(), start.getY(), start.getZ());
-        TalesMaker.LOGGER.debug("[Pathfinding] Start check: pos={}, canStand={}, ground={}, passable={}",
-            start, canStandAtStart, hasGroundBelow, isPassableAtStart);
+        // (guarded - reading the snapshot here would decode sections on the main thread)
+        if (TalesMaker.LOGGER.isDebugEnabled()) {
+            boolean canStandAtStart = context.canStandAt(start.getX(), start.getY(), start.getZ());
+            boolean hasGroundBelow = context.isSolid(start.getX(), start.getY() - 1, start.getZ());
+            boolean isPassableAtStart = context.isPassable(start.getX(), start.getY(), start.getZ());
+            TalesMaker.LOGGER.debug("[Pathfinding] Start check: pos={}, canStand={}, ground={}, passable={}",
+                start, canStandAtStart, hasGroundBelow, isPassableAtStart);
+        }
 
         // Start async calculation
-        currentCalculation = CompletableFuture.supplyAsync(() -> {
-            if (canceled) return null;
-
-            AbstractPathfinder pathfinder = new AbstractPathfinder(goal, context);
-            return pathfinder.calculate(
-                    start,
-                    pathConfig.getMaxIterations(),
-                    pathConfig.getMaxTimeoutMs()
-            );
-        }, EXECUTOR).whenComplete((path, error) -> {
-            if (canceled) return;
-
-            if (error != null) {
-                // Log error but don't crash
-                scheduleCallback(level, () -> onComplete.accept(null));
-            } else {
-                scheduleCallback(level, () -> onComplete.accept(path));
+        SearchToken token = new SearchToken(++generation);
+        IncrementalPlanner planner = null;
+        if (!sliced && routeGraph == null && goal instanceof GoalFollow && pathConfig.isIncrementalFollow()) {
+            if (followPlanner == null) {
+                followPlanner = new IncrementalPlanner();
+            }
+            planner = followPlanner;
+        }
+        LandmarkHeuristic landmarks = pathConfig.isLandmarkHeuristics()
+                ? LandmarkHeuristic.forConfig(level.dimension(), pathConfig)
+                : null;
+        CompletableFuture<SearchResult> calculation = new CompletableFuture<>();
+        Request request = new Request(goal, start, target, level, context, pathConfig, token, routeGraph,
+                followField, planner, landmarks, onPrefix, calculation);
+        currentToken = token;
+        currentCalculation = calculation;
+        calculation.whenComplete((found, error) -> {
+            // Late results are dropped here, before they cost a server thread task
+            if (isStale(token)) return;
+
+            IPath result = error != null ? null : found.path();
+            SmoothPath direct = error != null ? null : found.smoothed();
+            // Still on the search thread: smooth against the snapshot the path was found in
+            SmoothPath smoothed = smooth ? smooth(result, direct, context, pathConfig) : null;
+            SectionStamps stamps = result != null ? stamp(result, smoothed, context, pathConfig) : null;
+            if (cacheKey != null && smoothed != null && stamps != null && result.isComplete()) {
+                PathCache.put(cacheKey, result, smoothed, stamps);
+            }
+            if (smoothed != null && exactTarget != null) {
+                smoothed = smoothed.withLastWaypoint(exactTarget);
+            }
+            scheduleCallback(level, () -> {
+                // A newer request may have been made while this one was queued
+                if (!isStale(token)) {
+                    lastTouchedUnloaded = context.hasTouchedUnknown();
+                    lastPathStamps = stamps;
+                    onComplete.accept(result, smoothed);
+                }
+            });
+        });
+        if (sliced) {
+            TimeSlicedScheduler.submit(request);
+        } else {
+            PathWorkerPool.submit(new PathWorkerPool.Task(priorityDelay, token, request));
+        }
+    }
+
+    /**
+     * One path request: the strategies below, tried in order. Runs whole on a worker,
+     * or as plain A* a slice at a time on the server thread with {@link TimeSlicedScheduler}.
+     */
+    private final class Request implements Runnable, TimeSlicedScheduler.Job {
+        private final Goal goal;
+        private final BlockPos start;
+        private final BlockPos target;
+        private final Level level;
+        private final WorldContext context;
+        private final PathingConfig pathConfig;
+        private final SearchToken token;
+        private final SectionGraph graph;
+        private final FlowFieldService field;
+        private final IncrementalPlanner incremental;
+        private final LandmarkHeuristic landmarks;
+        private final Consumer<SmoothPath> onPrefix;
+        private final CompletableFuture<SearchResult> calculation;
+
+        // Time-sliced only: the search being stepped, then its result until delivered
+        private AbstractPathfinder pathfinder;
+        private SearchResult found;
+
+        Request(Goal goal, BlockPos start, @Nullable BlockPos target, Level level, WorldContext context,
+                PathingConfig pathConfig, SearchToken token, @Nullable SectionGraph graph,
+                @Nullable FlowFieldService field, @Nullable IncrementalPlanner incremental,
+                @Nullable LandmarkHeuristic landmarks, @Nullable Consumer<SmoothPath> onPrefix,
+                CompletableFuture<SearchResult> calculation) {
+            this.goal = goal;
+            this.start = start;
+            this.target = target;
+            this.level = level;
+            this.context = context;
+            this.pathConfig = pathConfig;
+            this.token = token;
+            this.graph = graph;
+            this.field = field;
+            this.incremental = incremental;
+            this.landmarks = landmarks;
+            this.onPrefix = onPrefix;
+            this.calculation = calculation;
+        }
+
+        @Override
+        public void run() {
+            try {
+                IPath path = planBeforeSearch();
+                SmoothPath anyAngle = null;
+                Goal searchGoal = null;
+                if (needsSearch(path)) {
+                    searchGoal = landmarks != null ? landmarks.wrap(goal) : goal;
+                    if (BidirectionalSearch.applies(searchGoal, start, pathConfig)) {
+                        // Long trip to one block: search from both ends (null if the goal can't be stood on)
+                        path = BidirectionalSearch.calculate(searchGoal, start, context, token,
+                                pathConfig.getMaxIterations(), pathConfig.getMaxTimeoutMs());
+                    }
+                }
+                if (needsSearch(path)) {
+                    AbstractPathfinder pathfinder = configure(new AbstractPathfinder(searchGoal, context));
+                    path = pathfinder.calculate(
+                            start,
+                            pathConfig.getMaxIterations(),
+                            pathConfig.getMaxTimeoutMs()
+                    );
+                    anyAngle = pathfinder.getSmoothPath();
+                }
+                calculation.complete(new SearchResult(path, anyAngle));
+                if (landmarks != null && searchGoal != null && !token.isCanceled()) {
+                    // After delivery, so measuring a new landmark never delays the NPC
+                    landmarks.learn(searchGoal, start, path, context);
+                }
+            } catch (Throwable t) {
+                calculation.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public boolean step(long sliceNanos) {
+            long turnStart = System.nanoTime();
+            try {
+                if (found != null) {
+                    // Delivery stamps and smooths the path on this thread; it gets a turn of its own
+                    calculation.complete(found);
+                    return true;
+                }
+                if (pathfinder == null) {
+                    // Plain A* only (no route, field or incremental planner were set up);
+                    // own arena, as searches on the server thread are interleaved
+                    Goal searchGoal = landmarks != null ? landmarks.wrap(goal) : goal;
+                    pathfinder = configure(new AbstractPathfinder(searchGoal, context, new NodeArena()));
+                    pathfinder.begin(start, pathConfig.getMaxIterations(), pathConfig.getMaxTimeoutMs());
+                }
+                if (pathfinder.step(sliceNanos - (System.nanoTime() - turnStart))) {
+                    found = new SearchResult(pathfinder.getResult(), pathfinder.getSmoothPath());
+                }
+                return false;
+            } catch (Throwable t) {
+                calculation.completeExceptionally(t);
+            }
+            return true;
+        }
+
+        @Override
+        public SearchToken getToken() {
+            return token;
+        }
+
+        /**
+         * Try a route leg, the shared follow field, then the incremental follow planner.
+         *
+         * @return the path, or null if none of them found one
+         */
+        @Nullable
+        private IPath planBeforeSearch() {
+            IPath path = null;
+            if (graph != null) {
+                path = RoutePlanner.planLeg(goal, start, context, graph, token,
+                        pathConfig.getMaxIterations(), pathConfig.getMaxTimeoutMs());
+            }
+            if (path == null && field != null && !token.isCanceled()) {
+                path = field.pathFrom(goal, target, start, context, PathCalculator.this);
+            }
+            if (path == null && incremental != null && !token.isCanceled()) {
+                path = incremental.plan(goal, start, context, token,
+                        pathConfig.getMaxIterations(), pathConfig.getMaxTimeoutMs());
+            }
+            return path;
+        }
+
+        /**
+         * Check if a plain search is still needed (the incremental planner's answer is final).
+         */
+        private boolean needsSearch(@Nullable IPath path) {
+            return path == null && incremental == null && !token.isCanceled();
+        }
+
+        private AbstractPathfinder configure(AbstractPathfinder pathfinder) {
+            pathfinder.setToken(token);
+            if (onPrefix != null && pathConfig.getPrefixNodes() > 0) {
+                pathfinder.setPrefixListener(pathConfig.getPrefixNodes(),
+                        prefix -> deliverPrefix(prefix, context, pathConfig, level, token, onPrefix));
+            }
+            return pathfinder;
+        }
+    }
+
+    /**
+     * Smooth a found path.
+     *
+     * @param direct the path's smoothed form if the search produced one (any-angle), or null
+     * @return the smoothed path, or null if there is nothing to walk
+     */
+    @Nullable
+    private static SmoothPath smooth(@Nullable IPath path, @Nullable SmoothPath direct, WorldContext context,
+                                     PathingConfig pathConfig) {
+        if (path == null || path.length() <= 1) {
+            return null;
+        }
+        try {
+            return direct != null ? direct : PathSmoother.smooth(path, context, pathConfig);
+        } catch (RuntimeException e) {
+            TalesMaker.LOGGER.error("[Pathfinding] Smoothing failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stamp the sections a path and its smoothed shortcuts were checked against: each cell's
+     * footprint, the ground under it, its headroom and, for wide entities, the passage scan
+     * that centers its waypoints.
+     */
+    private static SectionStamps stamp(IPath path, @Nullable SmoothPath smoothed, WorldContext context,
+                                       PathingConfig pathConfig) {
+        LongOpenHashSet cells = smoothed != null
+                ? PathSmoother.crossedCells(smoothed, pathConfig)
+                : new LongOpenHashSet();
+        for (BlockPos pos : path.positions()) {
+            cells.add(pos.asLong());
+        }
+        float width = pathConfig.getEntityWidth();
+        int horizontal = (int) Math.ceil(width / 2) + (width > 1.0f ? PassageAnalyzer.MAX_SCAN_DISTANCE : 0);
+        return SectionStamps.around(context.getSnapshot(), cells, horizontal, 1,
+                (int) Math.ceil(pathConfig.getEntityHeight()));
+    }
+
+    /**
+     * Hand a cached path to the main thread, as a finished search would.
+     * Counts as calculating until the callback ran.
+     */
+    private void deliverCached(PathCache.Entry cached, Level level, @Nullable Vec3 exactTarget,
+                               BiConsumer<IPath, SmoothPath> onComplete) {
+        SearchToken token = new SearchToken(++generation);
+        CompletableFuture<SearchResult> calculation = new CompletableFuture<>();
+        currentToken = token;
+        currentCalculation = calculation;
+        SmoothPath smoothed = exactTarget != null
+                ? cached.smoothed().withLastWaypoint(exactTarget)
+                : cached.smoothed();
+        scheduleCallback(level, () -> {
+            if (!isStale(token)) {
+                lastTouchedUnloaded = false;
+                lastPathStamps = cached.stamps();
+                onComplete.accept(cached.path(), smoothed);
+            }
+            calculation.complete(new SearchResult(cached.path(), cached.smoothed()));
+        });
+    }
+
+    /**
+     * Smooth a published prefix on the search thread and pass it to the main thread.
+     */
+    private void deliverPrefix(IPath prefix, WorldContext context, PathingConfig pathConfig, Level level,
+                               SearchToken token, Consumer<SmoothPath> onPrefix) {
+        if (isStale(token)) return;
+        SmoothPath smoothed = smooth(prefix, null, context, pathConfig);
+        if (smoothed == null) return;
+        // Queued before the final result, so it always arrives first
+        scheduleCallback(level, () -> {
+            if (!isStale(token)) {
+                onPrefix.accept(smoothed);
             }
         });
     }
@@ -107,11 +460,24 @@ public class PathCalculator {
         requestPath(new SimpleGoalBlock(target), start, level, onComplete);
     }
 
+    /**
+     * Drop the kept follow search tree, once follow stops or its target changes.
+     * A search still running on the old tree finishes on it undisturbed.
+     */
+    public void resetFollowPlanner() {
+        followPlanner = null;
+    }
+
     /**
      * Cancel the current calculation.
      */
     public void cancel() {
         canceled = true;
+        if (currentToken != null) {
+            // Stops a running search at its next check, or drops it unrun if still queued
+            currentToken.cancel();
+            currentToken = null;
+        }
         if (currentCalculation != null && !currentCalculation.isDone()) {
             currentCalculation.cancel(true);
         }
@@ -125,6 +491,36 @@ public class PathCalculator {
         return currentCalculation != null && !currentCalculation.isDone();
     }
 
+    /**
+     * Check if a request's result must be discarded.
+     */
+    private boolean isStale(SearchToken token) {
+        return token.isCanceled() || token.getGeneration() != generation;
+    }
+
+    /**
+     * Check if the last delivered search read blocks of unloaded chunks,
+     * so a partial or missing result may improve once they load.
+     */
+    public boolean hasTouchedUnloaded() {
+        return lastTouchedUnloaded;
+    }
+
+    /**
+     * Get the versions of the sections the last delivered path was found through,
+     * or null if the last search found no path.
+     */
+    public SectionStamps getLastPathStamps() {
+        return lastPathStamps;
+    }
+
+    /**
+     * Get the generation of the latest request.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
     /**
      * Check if calculation was canceled.
      */
@@ -152,19 +548,11 @@ public class PathCalculator {
     }
 
     /**
-     * Shutdown the pathfinding executor.
+     * Shutdown the pathfinding worker pool.
      * Should be called when the mod is unloading.
      */
     public static void shutdown() {
-        EXECUTOR.shutdown();
-        try {
-            if (!EXECUTOR.awaitTermination(1, TimeUnit.SECONDS)) {
-                EXECUTOR.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            EXECUTOR.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+        PathWorkerPool.shutdown();
     }
 
     /**
@@ -189,5 +577,10 @@ public class PathCalculator {
         public double heuristic(int x, int y, int z) {
             return ActionCosts.octileDistance(x, y, z, this.x, this.y, this.z);
         }
+
+        @Override
+        public BlockPos getTargetPos() {
+            return new BlockPos(x, y, z);
+        }
     }
 }
@@ -0,0 +1,161 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared pool of pathfinding worker threads with a priority queue.
+ *
+ * Requests are ordered by a virtual deadline: submission time plus a delay that grows with
+ * the NPC's distance to the nearest player and shrinks when a player can see it. Far,
+ * unseen NPCs yield to nearby ones, but every request still ages to the front eventually.
+ *
+ * Configured with system properties:
+ * - talesmaker.pathfinding.workers: worker count (default: half the cores, 1-4)
+ * - talesmaker.pathfinding.virtualThreads: use virtual threads instead of platform threads
+ */
+public final class PathWorkerPool {
+    private static final int WORKERS = Math.max(1, Integer.getInteger("talesmaker.pathfinding.workers",
+            Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("talesmaker.pathfinding.virtualThreads");
+
+    // Priority delay tuning
+    private static final double PLAYER_SEARCH_RANGE = 128.0;
+    private static final long NO_PLAYER_DELAY_MS = 2000;
+    private static final long DELAY_PER_BLOCK_MS = 10;
+    private static final long MAX_DISTANCE_DELAY_MS = 1000;
+    private static final long VISIBLE_DELAY_DIVISOR = 4;
+
+    /**
+     * Delay used when the requester gives no priority hint.
+     */
+    public static final long DEFAULT_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(), createThreadFactory());
+
+    private PathWorkerPool() {
+        // Utility class
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        if (VIRTUAL_THREADS) {
+            return Thread.ofVirtual().name("TalesMaker-Pathfinding-", 0).factory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "TalesMaker-Pathfinding-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+    }
+
+    /**
+     * Queue a task. Tasks run in virtual-deadline order; canceled tasks are dropped unrun.
+     */
+    public static void submit(Task task) {
+        EXECUTOR.execute(task);
+    }
+
+    /**
+     * Compute the priority delay for an entity's path request.
+     * MUST be called from the main thread.
+     *
+     * @return delay in nanoseconds added to the submission time (lower runs sooner)
+     */
+    public static long priorityDelayNanos(Entity entity) {
+        Player player = entity.level().getNearestPlayer(entity, PLAYER_SEARCH_RANGE);
+        if (player == null) {
+            return TimeUnit.MILLISECONDS.toNanos(NO_PLAYER_DELAY_MS);
+        }
+        double distance = Math.sqrt(player.distanceToSqr(entity));
+        long delayMs = Math.min(MAX_DISTANCE_DELAY_MS, (long) (distance * DELAY_PER_BLOCK_MS));
+        if (player.hasLineOfSight(entity)) {
+            delayMs /= VISIBLE_DELAY_DIVISOR;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(delayMs);
+    }
+
+    /**
+     * Get the number of requests waiting for a worker.
+     */
+    public static int getQueuedCount() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    public static int getWorkerCount() {
+        return WORKERS;
+    }
+
+    /**
+     * Shutdown the pool.
+     * Should be called when the mod is unloading.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+        try {
+            if (!EXECUTOR.awaitTermination(1, TimeUnit.SECONDS)) {
+                EXECUTOR.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            EXECUTOR.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A queued pathfinding job.
+     */
+    public static final class Task implements Runnable, Comparable<Task> {
+        private final long deadlineNanos;
+        private final long sequence;
+        private final SearchToken token;
+        private final Runnable work;
+
+        /**
+         * @param delayNanos priority delay from {@link #priorityDelayNanos}
+         * @param token      request token; the task is dropped unrun once it is canceled
+         * @param work       the job to run on the worker
+         */
+        public Task(long delayNanos, SearchToken token, Runnable work) {
+            this.deadlineNanos = System.nanoTime() + delayNanos;
+            this.sequence = SEQUENCE.getAndIncrement();
+            this.token = token;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            if (token.isCanceled()) {
+                return;
+            }
+            try {
+                work.run();
+            } catch (Throwable t) {
+                TalesMaker.LOGGER.error("[Pathfinding] Worker task failed", t);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            // Deadlines come from nanoTime, so compare the difference to stay overflow-safe
+            long diff = deadlineNanos - other.deadlineNanos;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+/**
+ * Cancellation token for one path request.
+ * The main thread cancels it; the worker polls it from the search loop and stops early.
+ * The generation identifies the request within its {@link PathCalculator}, so results of
+ * older requests can be recognized and dropped.
+ */
+public final class SearchToken {
+    /**
+     * Token that is never canceled, for searches run outside a calculator.
+     */
+    public static final SearchToken NONE = new SearchToken(0);
+
+    private final long generation;
+    private volatile boolean canceled;
+
+    public SearchToken(long generation) {
+        this.generation = generation;
+    }
+
+    public void cancel() {
+        if (this != NONE) {
+            canceled = true;
+        }
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+}
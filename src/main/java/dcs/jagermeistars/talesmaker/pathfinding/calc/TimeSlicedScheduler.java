@@ -0,0 +1,111 @@
+package dcs.jagermeistars.talesmaker.pathfinding.calc;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs path searches on the server thread, a slice at a time, instead of on the worker pool.
+ *
+ * For low-core hosts where the workers compete with the server thread anyway: each tick,
+ * pending searches take turns (round-robin) until a fixed time budget is spent, so path
+ * cost is a bounded part of the tick instead of contended CPU. Only strategies that can
+ * pause run here: plain A*, without routes, shared follow fields or the incremental planner.
+ * Delivering a result (stamping and smoothing the path) takes a turn of its own.
+ *
+ * Configured with system properties:
+ * - talesmaker.pathfinding.timeSliced: use this scheduler instead of the worker pool
+ * - talesmaker.pathfinding.tickBudgetMicros: search time per tick (default: 2000)
+ */
+@EventBusSubscriber(modid = TalesMaker.MODID)
+public final class TimeSlicedScheduler {
+    private static final boolean ENABLED = Boolean.getBoolean("talesmaker.pathfinding.timeSliced");
+    private static final long TICK_BUDGET_NANOS =
+            Math.max(100, Long.getLong("talesmaker.pathfinding.tickBudgetMicros", 2000)) * 1_000L;
+
+    // Shortest turn a search gets, however many are waiting
+    private static final long MIN_SLICE_NANOS = 100_000L;
+
+    // Server thread only
+    private static final ArrayDeque<Job> PENDING = new ArrayDeque<>();
+
+    private TimeSlicedScheduler() {
+        // Utility class
+    }
+
+    /**
+     * A search that can be run in slices.
+     */
+    public interface Job {
+        /**
+         * Run for about the given time.
+         *
+         * @return true once the job has finished (and delivered its result)
+         */
+        boolean step(long sliceNanos);
+
+        /**
+         * Get the request token; a canceled job is dropped at its next turn.
+         */
+        SearchToken getToken();
+    }
+
+    /**
+     * Check if searches run on the server thread instead of the worker pool.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Queue a job behind the ones already waiting.
+     * MUST be called from the main thread.
+     */
+    public static void submit(Job job) {
+        PENDING.addLast(job);
+    }
+
+    /**
+     * Get the number of searches waiting for their next turn.
+     */
+    public static int getPendingCount() {
+        return PENDING.size();
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(ServerTickEvent.Post event) {
+        if (PENDING.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long remaining = TICK_BUDGET_NANOS;
+        while (!PENDING.isEmpty() && remaining > 0) {
+            Job job = PENDING.pollFirst();
+            if (job.getToken().isCanceled()) {
+                continue;
+            }
+            // Split what is left of the budget between the waiting searches
+            long slice = Math.max(MIN_SLICE_NANOS, remaining / (PENDING.size() + 1));
+            boolean done;
+            try {
+                done = job.step(slice);
+            } catch (Throwable t) {
+                TalesMaker.LOGGER.error("[Pathfinding] Time-sliced search failed", t);
+                done = true;
+            }
+            if (!done) {
+                PENDING.addLast(job);
+            }
+            remaining = TICK_BUDGET_NANOS - (System.nanoTime() - start);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        PENDING.clear();
+    }
+}
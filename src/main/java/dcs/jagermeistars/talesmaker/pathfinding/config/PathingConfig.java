@@ -33,6 +33,27 @@ public class PathingConfig {
     private final double doorCost;
     private final double parkourCost;
 
+    // World capture
+    private final boolean lazyCapture;
+    private final boolean retryAtUnloaded;
+
+    // Long-range routing
+    private final boolean hierarchical;
+    private final int maxRouteRange;
+    private final boolean incrementalFollow;
+    private final boolean sharedFollowField;
+    private final boolean sharedPathCache;
+
+    // Search
+    private final boolean jumpPointSearch;
+    private final double heuristicWeight;
+    private final double heuristicWeightStep;
+    private final long anytimeRefineMs;
+    private final boolean anyAngleSearch;
+    private final int prefixNodes;
+    private final boolean bidirectional;
+    private final boolean landmarkHeuristics;
+
     private PathingConfig(Builder builder) {
         this.maxIterations = builder.maxIterations;
         this.maxTimeoutMs = builder.maxTimeoutMs;
@@ -54,6 +75,21 @@ public class PathingConfig {
         this.swimCost = builder.swimCost;
         this.doorCost = builder.doorCost;
         this.parkourCost = builder.parkourCost;
+        this.lazyCapture = builder.lazyCapture;
+        this.retryAtUnloaded = builder.retryAtUnloaded;
+        this.hierarchical = builder.hierarchical;
+        this.maxRouteRange = builder.maxRouteRange;
+        this.incrementalFollow = builder.incrementalFollow;
+        this.sharedFollowField = builder.sharedFollowField;
+        this.sharedPathCache = builder.sharedPathCache;
+        this.jumpPointSearch = builder.jumpPointSearch;
+        this.heuristicWeight = builder.heuristicWeight;
+        this.heuristicWeightStep = builder.heuristicWeightStep;
+        this.anytimeRefineMs = builder.anytimeRefineMs;
+        this.anyAngleSearch = builder.anyAngleSearch;
+        this.prefixNodes = builder.prefixNodes;
+        this.bidirectional = builder.bidirectional;
+        this.landmarkHeuristics = builder.landmarkHeuristics;
     }
 
     // Getters
@@ -77,6 +113,21 @@ public class PathingConfig {
     public double getSwimCost() { return swimCost; }
     public double getDoorCost() { return doorCost; }
     public double getParkourCost() { return parkourCost; }
+    public boolean isLazyCapture() { return lazyCapture; }
+    public boolean isRetryAtUnloaded() { return retryAtUnloaded; }
+    public boolean isHierarchical() { return hierarchical; }
+    public int getMaxRouteRange() { return maxRouteRange; }
+    public boolean isIncrementalFollow() { return incrementalFollow; }
+    public boolean isSharedFollowField() { return sharedFollowField; }
+    public boolean isSharedPathCache() { return sharedPathCache; }
+    public boolean isJumpPointSearch() { return jumpPointSearch; }
+    public double getHeuristicWeight() { return heuristicWeight; }
+    public double getHeuristicWeightStep() { return heuristicWeightStep; }
+    public long getAnytimeRefineMs() { return anytimeRefineMs; }
+    public boolean isAnyAngleSearch() { return anyAngleSearch; }
+    public int getPrefixNodes() { return prefixNodes; }
+    public boolean isBidirectional() { return bidirectional; }
+    public boolean isLandmarkHeuristics() { return landmarkHeuristics; }
 
     /**
      * Create default NPC configuration.
@@ -126,6 +177,21 @@ public class PathingConfig {
         private double swimCost = 2.0;
         private double doorCost = 1.5;
         private double parkourCost = 3.0;
+        private boolean lazyCapture = true;
+        private boolean retryAtUnloaded = true;
+        private boolean hierarchical = true;
+        private int maxRouteRange = 384;
+        private boolean incrementalFollow = true;
+        private boolean sharedFollowField = true;
+        private boolean sharedPathCache = true;
+        private boolean jumpPointSearch = false;
+        private double heuristicWeight = 1.0;
+        private double heuristicWeightStep = 0.5;
+        private long anytimeRefineMs = 5;
+        private boolean anyAngleSearch = false;
+        private int prefixNodes = 256;
+        private boolean bidirectional = false;
+        private boolean landmarkHeuristics = false;
 
         public Builder maxIterations(int maxIterations) {
             this.maxIterations = maxIterations;
@@ -227,6 +293,138 @@ public class PathingConfig {
             return this;
         }
 
+        /**
+         * Copy only the chunk sections the search touches instead of the whole capture cube.
+         */
+        public Builder lazyCapture(boolean lazyCapture) {
+            this.lazyCapture = lazyCapture;
+            return this;
+        }
+
+        /**
+         * Request a new path when a search stopped short at unloaded chunks,
+         * once the NPC has walked to that frontier.
+         */
+        public Builder retryAtUnloaded(boolean retryAtUnloaded) {
+            this.retryAtUnloaded = retryAtUnloaded;
+            return this;
+        }
+
+        /**
+         * Plan far goals over the section portal graph and search fine paths one leg at a time.
+         */
+        public Builder hierarchical(boolean hierarchical) {
+            this.hierarchical = hierarchical;
+            return this;
+        }
+
+        /**
+         * Maximum distance from the start (in blocks) a long-range route may reach.
+         */
+        public Builder maxRouteRange(int maxRouteRange) {
+            this.maxRouteRange = maxRouteRange;
+            return this;
+        }
+
+        /**
+         * Repair the previous search tree on follow repaths instead of searching from scratch.
+         */
+        public Builder incrementalFollow(boolean incrementalFollow) {
+            this.incrementalFollow = incrementalFollow;
+            return this;
+        }
+
+        /**
+         * Let NPCs following the same entity share one distance field instead of searching separately.
+         */
+        public Builder sharedFollowField(boolean sharedFollowField) {
+            this.sharedFollowField = sharedFollowField;
+            return this;
+        }
+
+        /**
+         * Reuse complete smoothed paths other NPCs of the same size found between the same
+         * cells, until a block along them changes.
+         */
+        public Builder sharedPathCache(boolean sharedPathCache) {
+            this.sharedPathCache = sharedPathCache;
+            return this;
+        }
+
+        /**
+         * Use Jump Point Search on flat ground, expanding far fewer nodes on roads and plazas.
+         */
+        public Builder jumpPointSearch(boolean jumpPointSearch) {
+            this.jumpPointSearch = jumpPointSearch;
+            return this;
+        }
+
+        /**
+         * Initial heuristic weight of the anytime search (ARA*).
+         * The first path costs at most this many times the optimum and is found much sooner;
+         * it is then improved while budget remains. 1.0 (the default) runs plain A*;
+         * set it above 1.0 to trade a longer first path for fewer expansions.
+         */
+        public Builder heuristicWeight(double heuristicWeight) {
+            this.heuristicWeight = heuristicWeight;
+            return this;
+        }
+
+        /**
+         * How much the heuristic weight drops after each anytime pass (down to 1.0).
+         */
+        public Builder heuristicWeightStep(double heuristicWeightStep) {
+            this.heuristicWeightStep = heuristicWeightStep;
+            return this;
+        }
+
+        /**
+         * Time (ms) an anytime search keeps improving its path after the first one is found.
+         */
+        public Builder anytimeRefineMs(long anytimeRefineMs) {
+            this.anytimeRefineMs = anytimeRefineMs;
+            return this;
+        }
+
+        /**
+         * Search any-angle (Lazy Theta*): nodes take their parent's parent when there is line
+         * of sight on flat ground, so the search itself yields the smoothed path.
+         * Takes precedence over jump points and the anytime search.
+         */
+        public Builder anyAngleSearch(boolean anyAngleSearch) {
+            this.anyAngleSearch = anyAngleSearch;
+            return this;
+        }
+
+        /**
+         * Nodes a search expands before handing the start of its best partial path to the NPC,
+         * which walks it while the search goes on. 0 waits for the full path.
+         */
+        public Builder prefixNodes(int prefixNodes) {
+            this.prefixNodes = prefixNodes;
+            return this;
+        }
+
+        /**
+         * Search long trips to a single block from both ends at once. Off by default: such
+         * trips then skip the weighted anytime search, jump points and early prefixes.
+         * Not used with any-angle search or time-sliced scheduling.
+         */
+        public Builder bidirectional(boolean bidirectional) {
+            this.bidirectional = bidirectional;
+            return this;
+        }
+
+        /**
+         * Tighten the estimate for trips to a single block with landmark distances (ALT).
+         * Goals the octile estimate badly underestimated become landmarks; for maps where
+         * walls make the straight line misleading, such as castles and other interiors.
+         */
+        public Builder landmarkHeuristics(boolean landmarkHeuristics) {
+            this.landmarkHeuristics = landmarkHeuristics;
+            return this;
+        }
+
         public PathingConfig build() {
             return new PathingConfig(this);
         }
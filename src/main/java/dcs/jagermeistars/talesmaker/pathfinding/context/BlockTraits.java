@@ -0,0 +1,169 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.movement.PassageAnalyzer;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.tags.FluidTags;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.DoorBlock;
+import net.minecraft.world.level.block.SlabBlock;
+import net.minecraft.world.level.block.TrapDoorBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.SlabType;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed pathfinding facts for every block state, packed into one int per state id.
+ * Built lazily (a state's bits are derived the first time it is seen) and shared between
+ * all searches whose configs agree on the flags that affect the result.
+ */
+public final class BlockTraits {
+    // Set once a state's traits have been derived (so 0 means "not computed yet")
+    private static final int COMPUTED = 1;
+
+    public static final int PASSABLE = 1 << 1;
+    public static final int SOLID = 1 << 2;
+    public static final int WATER = 1 << 3;
+    public static final int LAVA = 1 << 4;
+    public static final int CLIMBABLE = 1 << 5;
+    public static final int DOOR = 1 << 6;
+    public static final int TRAPDOOR = 1 << 7;
+    public static final int OPEN = 1 << 8;
+    public static final int TOP_SLAB = 1 << 9;
+    public static final int AIR = 1 << 10;
+    public static final int BLOCKS_MOTION = 1 << 11;
+    // Block in an unloaded chunk - neither passable nor solid, so searches treat it as blocked
+    public static final int UNKNOWN = 1 << 12;
+
+    // One table per combination of config flags that change the derived bits
+    private static final ConcurrentHashMap<Integer, BlockTraits> TABLES = new ConcurrentHashMap<>();
+
+    private final boolean canSwim;
+    private final boolean canClimb;
+    private final boolean canOpenDoors;
+    private final boolean fitsThroughDoors;
+    private final int[] traits;
+
+    private BlockTraits(boolean canSwim, boolean canClimb, boolean canOpenDoors, boolean fitsThroughDoors) {
+        this.canSwim = canSwim;
+        this.canClimb = canClimb;
+        this.canOpenDoors = canOpenDoors;
+        this.fitsThroughDoors = fitsThroughDoors;
+        this.traits = new int[Block.BLOCK_STATE_REGISTRY.size()];
+    }
+
+    /**
+     * Get the shared trait table for a config.
+     */
+    public static BlockTraits forConfig(PathingConfig config) {
+        boolean fitsThroughDoors = config.getEntityWidth() <= PassageAnalyzer.DOOR_PASSAGE_WIDTH;
+        int key = (config.canSwim() ? 1 : 0)
+                | (config.canClimb() ? 2 : 0)
+                | (config.canOpenDoors() ? 4 : 0)
+                | (fitsThroughDoors ? 8 : 0);
+        return TABLES.computeIfAbsent(key, k -> new BlockTraits(
+                config.canSwim(), config.canClimb(), config.canOpenDoors(), fitsThroughDoors));
+    }
+
+    /**
+     * Get the trait bits for a global block state id (or {@link RegionSnapshot#UNKNOWN_ID}).
+     */
+    public int get(int stateId) {
+        if (stateId < 0) {
+            return COMPUTED | UNKNOWN;
+        }
+        if (stateId >= traits.length) {
+            return compute(Block.stateById(stateId));
+        }
+        int bits = traits[stateId];
+        if (bits == 0) {
+            // Racing threads derive identical values, so a plain write is enough
+            bits = compute(Block.stateById(stateId));
+            traits[stateId] = bits;
+        }
+        return bits;
+    }
+
+    /**
+     * Derive the trait bits for a block state.
+     */
+    private int compute(BlockState state) {
+        int bits = COMPUTED;
+
+        boolean air = state.isAir();
+        if (air) {
+            bits |= AIR;
+        } else if (state.blocksMotion()) {
+            bits |= BLOCKS_MOTION;
+        }
+        if (state.isSolid()) {
+            bits |= SOLID;
+        }
+        if (state.getFluidState().is(FluidTags.WATER)) {
+            bits |= WATER;
+        }
+        if (state.getFluidState().is(FluidTags.LAVA)) {
+            bits |= LAVA;
+        }
+        boolean climbableTag = state.is(BlockTags.CLIMBABLE);
+        if (climbableTag && canClimb) {
+            bits |= CLIMBABLE;
+        }
+
+        Block block = state.getBlock();
+        if (block instanceof DoorBlock) {
+            bits |= DOOR;
+            if (state.getValue(DoorBlock.OPEN)) {
+                bits |= OPEN;
+            }
+        } else if (block instanceof TrapDoorBlock) {
+            bits |= TRAPDOOR;
+            if (state.getValue(TrapDoorBlock.OPEN)) {
+                bits |= OPEN;
+            }
+        }
+
+        if (state.hasProperty(SlabBlock.TYPE) && state.getValue(SlabBlock.TYPE) == SlabType.TOP) {
+            bits |= TOP_SLAB;
+        }
+
+        if (isPassable(state, air, climbableTag, bits)) {
+            bits |= PASSABLE;
+        }
+        return bits;
+    }
+
+    /**
+     * Check if an entity can occupy a block with this state.
+     */
+    private boolean isPassable(BlockState state, boolean air, boolean climbableTag, int bits) {
+        // Air is always passable
+        if (air) {
+            return true;
+        }
+
+        // Check for fluids - water is passable if swimming allowed
+        if (!state.getFluidState().isEmpty()) {
+            return canSwim || (bits & WATER) != 0;
+        }
+
+        if ((bits & DOOR) != 0) {
+            // Check if NPC can open doors and fits through door passage (0.7 blocks wide)
+            boolean canOpen = canOpenDoors || (bits & OPEN) != 0;
+            return canOpen && fitsThroughDoors;
+        }
+
+        if ((bits & TRAPDOOR) != 0) {
+            return canOpenDoors || (bits & OPEN) != 0;
+        }
+
+        // Climbable blocks are passable
+        if (climbableTag) {
+            return true;
+        }
+
+        // Approximate "no collision shape" since we don't have level context
+        return !state.blocksMotion();
+    }
+}
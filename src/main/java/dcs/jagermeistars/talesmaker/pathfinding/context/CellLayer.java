@@ -0,0 +1,86 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+/**
+ * Bit-packed, memoized boolean layer over a captured region.
+ * Each cell is unknown until first computed, then stays fixed for the snapshot's lifetime.
+ * Storage is allocated per 16x16x16 section on first write, so layers over lazily
+ * captured regions only cost memory where the search actually went.
+ *
+ * Not thread-safe - a layer belongs to a single WorldContext.
+ */
+final class CellLayer {
+    public static final int UNKNOWN = -1;
+
+    // 4096 cells per section / 64 bits per long
+    private static final int LONGS_PER_SECTION = SectionSnapshot.VOLUME / 64;
+
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+    private final int secMinX, secMinY, secMinZ;
+    private final int secSizeY, secSizeZ;
+    private final long[][] known;
+    private final long[][] values;
+
+    CellLayer(RegionSnapshot region) {
+        this.minX = region.getMinX();
+        this.minY = region.getMinY();
+        this.minZ = region.getMinZ();
+        this.maxX = region.getMaxX();
+        this.maxY = region.getMaxY();
+        this.maxZ = region.getMaxZ();
+        this.secMinX = minX >> 4;
+        this.secMinY = minY >> 4;
+        this.secMinZ = minZ >> 4;
+        int secSizeX = maxX < minX ? 0 : (maxX >> 4) - secMinX + 1;
+        this.secSizeY = maxY < minY ? 0 : (maxY >> 4) - secMinY + 1;
+        this.secSizeZ = maxZ < minZ ? 0 : (maxZ >> 4) - secMinZ + 1;
+        this.known = new long[secSizeX * secSizeY * secSizeZ][];
+        this.values = new long[known.length][];
+    }
+
+    /**
+     * Get a memoized value.
+     *
+     * @return 1 for true, 0 for false, UNKNOWN if not computed yet (or outside the region)
+     */
+    int get(int x, int y, int z) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return UNKNOWN;
+        }
+        int section = sectionIndex(x, y, z);
+        long[] sectionKnown = known[section];
+        if (sectionKnown == null) {
+            return UNKNOWN;
+        }
+        int bit = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+        long mask = 1L << (bit & 63);
+        if ((sectionKnown[bit >> 6] & mask) == 0) {
+            return UNKNOWN;
+        }
+        return (values[section][bit >> 6] & mask) != 0 ? 1 : 0;
+    }
+
+    /**
+     * Store a computed value. Ignored for cells outside the region.
+     */
+    void set(int x, int y, int z, boolean value) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return;
+        }
+        int section = sectionIndex(x, y, z);
+        if (known[section] == null) {
+            known[section] = new long[LONGS_PER_SECTION];
+            values[section] = new long[LONGS_PER_SECTION];
+        }
+        int bit = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+        long mask = 1L << (bit & 63);
+        known[section][bit >> 6] |= mask;
+        if (value) {
+            values[section][bit >> 6] |= mask;
+        }
+    }
+
+    private int sectionIndex(int x, int y, int z) {
+        return (((x >> 4) - secMinX) * secSizeY + ((y >> 4) - secMinY)) * secSizeZ + ((z >> 4) - secMinZ);
+    }
+}
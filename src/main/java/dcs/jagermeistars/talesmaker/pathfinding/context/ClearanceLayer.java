@@ -0,0 +1,91 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+/**
+ * Memoized clearance over a captured region: for each cell, the side of the largest square
+ * of cells with headroom that has the cell as its low x/z corner, up to {@link #MAX}.
+ * A value may be stored as a lower bound only ("at least"), when it was computed no further
+ * than the size asked for at the time.
+ * Storage is a byte per cell, allocated per 16x16x16 section on first write as in
+ * {@link CellLayer}.
+ *
+ * Not thread-safe - a layer belongs to a single WorldContext.
+ */
+final class ClearanceLayer {
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Largest clearance tracked; footprints wider than this are checked cell by cell.
+     */
+    public static final int MAX = 8;
+
+    // Set on stored values that are exact rather than a lower bound
+    private static final int EXACT = 0x40;
+
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+    private final int secMinX, secMinY, secMinZ;
+    private final int secSizeY, secSizeZ;
+    // Stored value + 1 (0 for unknown), with EXACT
+    private final byte[][] values;
+
+    ClearanceLayer(RegionSnapshot region) {
+        this.minX = region.getMinX();
+        this.minY = region.getMinY();
+        this.minZ = region.getMinZ();
+        this.maxX = region.getMaxX();
+        this.maxY = region.getMaxY();
+        this.maxZ = region.getMaxZ();
+        this.secMinX = minX >> 4;
+        this.secMinY = minY >> 4;
+        this.secMinZ = minZ >> 4;
+        int secSizeX = maxX < minX ? 0 : (maxX >> 4) - secMinX + 1;
+        this.secSizeY = maxY < minY ? 0 : (maxY >> 4) - secMinY + 1;
+        this.secSizeZ = maxZ < minZ ? 0 : (maxZ >> 4) - secMinZ + 1;
+        this.values = new byte[secSizeX * secSizeY * secSizeZ][];
+    }
+
+    /**
+     * Get a memoized clearance, if it is known to be at least {@code size} or known exactly.
+     *
+     * @return the clearance, capped at {@code size}, or UNKNOWN if not computed that far yet
+     *         (or outside the region)
+     */
+    int get(int x, int y, int z, int size) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return UNKNOWN;
+        }
+        byte[] section = values[sectionIndex(x, y, z)];
+        if (section == null) {
+            return UNKNOWN;
+        }
+        int stored = section[(y & 15) << 8 | (z & 15) << 4 | (x & 15)];
+        if (stored == 0) {
+            return UNKNOWN;
+        }
+        int value = (stored & ~EXACT) - 1;
+        if (value >= size) {
+            return size;
+        }
+        return (stored & EXACT) != 0 ? value : UNKNOWN;
+    }
+
+    /**
+     * Store a computed clearance. Ignored for cells outside the region.
+     *
+     * @param exact false if the clearance may be larger than {@code value}
+     */
+    void set(int x, int y, int z, int value, boolean exact) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return;
+        }
+        int index = sectionIndex(x, y, z);
+        if (values[index] == null) {
+            values[index] = new byte[SectionSnapshot.VOLUME];
+        }
+        values[index][(y & 15) << 8 | (z & 15) << 4 | (x & 15)] = (byte) ((value + 1) | (exact ? EXACT : 0));
+    }
+
+    private int sectionIndex(int x, int y, int z) {
+        return (((x >> 4) - secMinX) * secSizeY + ((y >> 4) - secMinY)) * secSizeZ + ((z >> 4) - secMinZ);
+    }
+}
@@ -0,0 +1,412 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a box-shaped world region for async pathfinding.
+ * Backed by a flat array of section snapshots indexed by local section coordinates.
+ * Blocks outside the captured box read as STONE (safe default - treated as impassable).
+ * Capture never loads or generates chunks: sections of unloaded chunks read as UNKNOWN_ID.
+ *
+ * Eager snapshots copy every section up front. Lazy snapshots copy only the sections
+ * the search actually touches: a missing section is copied on the main thread when the
+ * worker first reads it. A lazy snapshot must only be read by one thread at a time
+ * (the main thread before the search is submitted, then the worker). Search budgets don't
+ * count the time spent waiting for those copies, so the total wait per snapshot is capped:
+ * past it, sections still missing read as unknown instead of being fetched.
+ *
+ * Section copies come from the shared {@link SectionCache}, so regions captured by
+ * different NPCs in the same area reuse the same immutable section snapshots.
+ */
+public final class RegionSnapshot {
+    public static final int OUTSIDE_ID = Block.getId(Blocks.STONE.defaultBlockState());
+    private static final int AIR_ID = Block.getId(Blocks.AIR.defaultBlockState());
+    private static final int VOID_AIR_ID = Block.getId(Blocks.VOID_AIR.defaultBlockState());
+
+    /**
+     * Id of blocks whose chunk was not loaded (or could not be read) at capture time.
+     * Not a real block state id - {@link BlockTraits} reports it as {@link BlockTraits#UNKNOWN}.
+     */
+    public static final int UNKNOWN_ID = -1;
+    private static final SectionSnapshot UNKNOWN = SectionSnapshot.uniform(UNKNOWN_ID);
+
+    // How long a worker waits for the main thread to copy a section
+    private static final long FETCH_TIMEOUT_MS = 1000;
+
+    // Total time a worker may wait for copies of one snapshot, across all its searches
+    private static final long MAX_FETCH_WAIT_NANOS =
+            Math.max(0, Long.getLong("talesmaker.pathfinding.maxFetchWaitMs", 250)) * 1_000_000L;
+
+    /**
+     * Empty snapshot - every block reads as outside.
+     */
+    public static final RegionSnapshot EMPTY = new RegionSnapshot(null, 0, 0, 0, -1, -1, -1, 0, 0, 0, 0, 0, 0);
+
+    // Source level for lazy section copies (null for eager snapshots)
+    @Nullable
+    private final Level level;
+
+    // Block bounds (inclusive)
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+
+    // Section grid
+    private final int secMinX, secMinY, secMinZ;
+    private final int secSizeX, secSizeY, secSizeZ;
+    private final SectionSnapshot[] sections;
+
+    // Statistics
+    private int sectionsCopied;
+    private long fetchWaitNanos;
+
+    private RegionSnapshot(@Nullable Level level, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                           int secMinX, int secMinY, int secMinZ,
+                           int secSizeX, int secSizeY, int secSizeZ) {
+        this.level = level;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.secMinX = secMinX;
+        this.secMinY = secMinY;
+        this.secMinZ = secMinZ;
+        this.secSizeX = secSizeX;
+        this.secSizeY = secSizeY;
+        this.secSizeZ = secSizeZ;
+        this.sections = new SectionSnapshot[secSizeX * secSizeY * secSizeZ];
+    }
+
+    /**
+     * Capture a box of the world, copying every section immediately.
+     * MUST be called from the main thread.
+     *
+     * @return snapshot covering [min, max] (inclusive)
+     */
+    public static RegionSnapshot capture(Level level, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        RegionSnapshot region = create(level, minX, minY, minZ, maxX, maxY, maxZ, false);
+        for (int sx = 0; sx < region.secSizeX; sx++) {
+            for (int sz = 0; sz < region.secSizeZ; sz++) {
+                for (int sy = 0; sy < region.secSizeY; sy++) {
+                    region.sections[region.sectionIndex(sx, sy, sz)] = copySection(level,
+                            region.secMinX + sx, region.secMinY + sy, region.secMinZ + sz);
+                    region.sectionsCopied++;
+                }
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Create a lazily captured box of the world.
+     * No sections are copied until {@link #prefetch} or a lookup touches them.
+     * MUST be called from the main thread.
+     */
+    public static RegionSnapshot captureLazy(Level level, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return create(level, minX, minY, minZ, maxX, maxY, maxZ, true);
+    }
+
+    private static RegionSnapshot create(Level level, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                         boolean lazy) {
+        minY = Math.max(level.getMinBuildHeight(), minY);
+        maxY = Math.min(level.getMaxBuildHeight(), maxY);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return EMPTY;
+        }
+
+        int secMinX = SectionPos.blockToSectionCoord(minX);
+        int secMinY = SectionPos.blockToSectionCoord(minY);
+        int secMinZ = SectionPos.blockToSectionCoord(minZ);
+        return new RegionSnapshot(lazy ? level : null, minX, minY, minZ, maxX, maxY, maxZ,
+                secMinX, secMinY, secMinZ,
+                SectionPos.blockToSectionCoord(maxX) - secMinX + 1,
+                SectionPos.blockToSectionCoord(maxY) - secMinY + 1,
+                SectionPos.blockToSectionCoord(maxZ) - secMinZ + 1);
+    }
+
+    /**
+     * Copy the sections around a block position (its own section plus the ones holding
+     * the blocks two above and below, so ground and headroom checks stay local).
+     * MUST be called from the main thread.
+     */
+    public void prefetch(int x, int y, int z) {
+        if (level == null || !contains(x, y, z)) {
+            return;
+        }
+        for (int dy = -2; dy <= 2; dy += 2) {
+            int py = Math.max(minY, Math.min(maxY, y + dy));
+            int sx = (x >> 4) - secMinX;
+            int sy = (py >> 4) - secMinY;
+            int sz = (z >> 4) - secMinZ;
+            int index = sectionIndex(sx, sy, sz);
+            if (sections[index] == null) {
+                sections[index] = copySection(level, x >> 4, py >> 4, z >> 4);
+                sectionsCopied++;
+            }
+        }
+    }
+
+    /**
+     * Copy the sections along the straight line between two points (clipped to the box).
+     * MUST be called from the main thread.
+     */
+    public void prefetchLine(int x1, int y1, int z1, int x2, int y2, int z2) {
+        int dx = x2 - x1;
+        int dy = y2 - y1;
+        int dz = z2 - z1;
+        int steps = Math.max(1, Math.max(Math.abs(dx), Math.max(Math.abs(dy), Math.abs(dz))) / 4);
+        for (int i = 0; i <= steps; i++) {
+            double t = (double) i / steps;
+            prefetch(x1 + (int) Math.round(dx * t), y1 + (int) Math.round(dy * t), z1 + (int) Math.round(dz * t));
+        }
+    }
+
+    /**
+     * Get a snapshot of a single section, reusing the shared copy if it is still current.
+     */
+    private static SectionSnapshot copySection(Level level, int sectionX, int sectionY, int sectionZ) {
+        if (sectionY < level.getMinSection() || sectionY >= level.getMaxSection()) {
+            // Outside build height - vanilla reports void air here
+            return SectionSnapshot.uniform(VOID_AIR_ID, SectionVersions.INITIAL);
+        }
+        if (!(level instanceof ServerLevel)) {
+            // Versions are only tracked for server levels
+            return readSection(level, sectionX, sectionY, sectionZ, SectionSnapshot.NO_VERSION);
+        }
+        SectionSnapshot cached = SectionCache.get(level, sectionX, sectionY, sectionZ);
+        if (cached != null) {
+            return cached;
+        }
+        long version = SectionVersions.get(level.dimension(), SectionPos.asLong(sectionX, sectionY, sectionZ));
+        SectionSnapshot snapshot = readSection(level, sectionX, sectionY, sectionZ, version);
+        if (snapshot != UNKNOWN) {
+            SectionCache.put(level, sectionX, sectionY, sectionZ, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Copy a single section of a loaded chunk.
+     * Returns the UNKNOWN section if the chunk is not loaded - it is never loaded here.
+     */
+    private static SectionSnapshot readSection(Level level, int sectionX, int sectionY, int sectionZ, long version) {
+        LevelChunk chunk = level.getChunkSource().getChunkNow(sectionX, sectionZ);
+        if (chunk == null) {
+            return UNKNOWN;
+        }
+        LevelChunkSection section = chunk.getSection(level.getSectionIndexFromSectionY(sectionY));
+        if (section.hasOnlyAir()) {
+            return SectionSnapshot.uniform(AIR_ID, version);
+        }
+        return SectionSnapshot.of(section.getStates(), version);
+    }
+
+    /**
+     * Get the global block state id at a position.
+     * Returns the STONE id for positions outside the captured box.
+     */
+    public int getStateId(int x, int y, int z) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return OUTSIDE_ID;
+        }
+        int sx = (x >> 4) - secMinX;
+        int sy = (y >> 4) - secMinY;
+        int sz = (z >> 4) - secMinZ;
+        SectionSnapshot section = sections[sectionIndex(sx, sy, sz)];
+        if (section == null) {
+            section = fetch(sx, sy, sz);
+        }
+        return section.getStateId(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Copy a missing section (and its missing horizontal neighbours, since the search
+     * frontier usually spreads sideways) on the main thread.
+     */
+    private SectionSnapshot fetch(int sx, int sy, int sz) {
+        Level source = level;
+        if (source == null) {
+            return UNKNOWN;
+        }
+
+        int[] batch = new int[9];
+        int batchSize = 0;
+        for (int ox = -1; ox <= 1; ox++) {
+            for (int oz = -1; oz <= 1; oz++) {
+                int nx = sx + ox;
+                int nz = sz + oz;
+                if (nx < 0 || nx >= secSizeX || nz < 0 || nz >= secSizeZ) {
+                    continue;
+                }
+                if (sections[sectionIndex(nx, sy, nz)] == null) {
+                    batch[batchSize++] = sectionIndex(nx, sy, nz);
+                }
+            }
+        }
+
+        int count = batchSize;
+        int sectionY = secMinY + sy;
+        MinecraftServer server = source.getServer();
+        SectionSnapshot[] copied;
+        if (server == null || server.isSameThread()) {
+            copied = copyBatch(source, batch, count, sectionY);
+        } else if (fetchWaitNanos >= MAX_FETCH_WAIT_NANOS) {
+            // Waited long enough for this request - the rest of the box stays unknown
+            copied = null;
+        } else {
+            long waitStart = System.nanoTime();
+            long timeoutNanos = Math.min(FETCH_TIMEOUT_MS * 1_000_000L, MAX_FETCH_WAIT_NANOS - fetchWaitNanos);
+            try {
+                copied = CompletableFuture.supplyAsync(() -> copyBatch(source, batch, count, sectionY), server)
+                        .get(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                copied = null;
+            } catch (Exception e) {
+                TalesMaker.LOGGER.debug("[Pathfinding] Section fetch failed: {}", e.toString());
+                copied = null;
+            }
+            fetchWaitNanos += System.nanoTime() - waitStart;
+        }
+
+        for (int i = 0; i < count; i++) {
+            sections[batch[i]] = copied != null ? copied[i] : UNKNOWN;
+        }
+        sectionsCopied += count;
+        return sections[sectionIndex(sx, sy, sz)];
+    }
+
+    /**
+     * Copy a batch of sections. Runs on the main thread.
+     */
+    private SectionSnapshot[] copyBatch(Level source, int[] batch, int count, int sectionY) {
+        SectionSnapshot[] result = new SectionSnapshot[count];
+        for (int i = 0; i < count; i++) {
+            int index = batch[i];
+            int sz = index % secSizeZ;
+            int sx = index / (secSizeY * secSizeZ);
+            result[i] = copySection(source, secMinX + sx, sectionY, secMinZ + sz);
+        }
+        return result;
+    }
+
+    /**
+     * Get the version a section had when it was copied, copying it now if needed.
+     *
+     * @param sectionX absolute section coordinates
+     * @return the version, or NO_VERSION for sections outside the box or not loaded
+     */
+    public long getSectionVersion(int sectionX, int sectionY, int sectionZ) {
+        int sx = sectionX - secMinX;
+        int sy = sectionY - secMinY;
+        int sz = sectionZ - secMinZ;
+        if (sx < 0 || sx >= secSizeX || sy < 0 || sy >= secSizeY || sz < 0 || sz >= secSizeZ) {
+            return SectionSnapshot.NO_VERSION;
+        }
+        SectionSnapshot section = sections[sectionIndex(sx, sy, sz)];
+        if (section == null) {
+            section = fetch(sx, sy, sz);
+        }
+        return section.getVersion();
+    }
+
+    /**
+     * Get the version a section had when it was copied, without ever waiting for a copy.
+     * A section not copied yet gets its current version instead: a later copy is taken at
+     * that version or a newer one, so a stamp made from it can only turn stale too early.
+     *
+     * @param sectionX absolute section coordinates
+     * @return the version, or NO_VERSION for sections outside the box, not loaded, or of a
+     *         level whose versions are not tracked
+     */
+    public long peekSectionVersion(int sectionX, int sectionY, int sectionZ) {
+        int sx = sectionX - secMinX;
+        int sy = sectionY - secMinY;
+        int sz = sectionZ - secMinZ;
+        if (sx < 0 || sx >= secSizeX || sy < 0 || sy >= secSizeY || sz < 0 || sz >= secSizeZ) {
+            return SectionSnapshot.NO_VERSION;
+        }
+        SectionSnapshot section = sections[sectionIndex(sx, sy, sz)];
+        if (section != null) {
+            return section.getVersion();
+        }
+        Level source = level;
+        if (!(source instanceof ServerLevel)) {
+            return SectionSnapshot.NO_VERSION;
+        }
+        if (sectionY < source.getMinSection() || sectionY >= source.getMaxSection()) {
+            // Void air, as a copy would read it
+            return SectionVersions.INITIAL;
+        }
+        long version = SectionVersions.get(source.dimension(), SectionPos.asLong(sectionX, sectionY, sectionZ));
+        // Untracked means not loaded - a copy would read it as unknown
+        return version != SectionVersions.INITIAL ? version : SectionSnapshot.NO_VERSION;
+    }
+
+    private int sectionIndex(int sx, int sy, int sz) {
+        return (sx * secSizeY + sy) * secSizeZ + sz;
+    }
+
+    /**
+     * Get the block state at a position.
+     * Unknown blocks read as STONE, like blocks outside the box.
+     */
+    public BlockState getBlockState(int x, int y, int z) {
+        int id = getStateId(x, y, z);
+        return Block.stateById(id == UNKNOWN_ID ? OUTSIDE_ID : id);
+    }
+
+    /**
+     * Check if a position is inside the captured box.
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * Get the number of blocks covered by the captured box.
+     */
+    public long volume() {
+        if (maxX < minX) {
+            return 0;
+        }
+        return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+    }
+
+    /**
+     * Get the number of sections copied so far.
+     */
+    public int getSectionsCopied() {
+        return sectionsCopied;
+    }
+
+    /**
+     * Get the total time the reading thread spent waiting for lazy section copies.
+     * Counts for the whole request: a search that shares the snapshot with others takes
+     * the value at its own start and subtracts only the growth since.
+     */
+    public long getFetchWaitNanos() {
+        return fetchWaitNanos;
+    }
+
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMinZ() { return minZ; }
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+    public int getMaxZ() { return maxZ; }
+}
@@ -0,0 +1,110 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Section snapshots shared between all path requests of a server.
+ * Section snapshots are immutable, so one copy can back any number of regions at once;
+ * an entry is reused until its section's {@link SectionVersions version} changes.
+ * Entries also expire after a while, covering writes that bypass LevelChunk.setBlockState
+ * (mods editing section storage directly) and freeing copies of areas no NPC visits anymore.
+ * Snapshots are shared by reference rather than reference-counted: the GC frees a copy once
+ * neither this cache nor a running search holds it.
+ *
+ * Main thread only.
+ */
+public final class SectionCache {
+    // Sections kept per dimension (least recently used are dropped first)
+    private static final int MAX_SECTIONS = 4096;
+
+    // Safety net for writes that bypass the version hook, and bound on how long a copy is kept
+    private static final long MAX_AGE_TICKS = 200;
+
+    private static final Map<ResourceKey<Level>, Long2ObjectLinkedOpenHashMap<Entry>> CACHES = new HashMap<>();
+
+    // Statistics
+    private static long hits;
+    private static long misses;
+
+    private SectionCache() {
+        // Utility class
+    }
+
+    private record Entry(SectionSnapshot snapshot, long capturedTick) {
+    }
+
+    /**
+     * Get a cached snapshot of a section, if it is still current.
+     */
+    @Nullable
+    public static SectionSnapshot get(Level level, int sectionX, int sectionY, int sectionZ) {
+        Long2ObjectLinkedOpenHashMap<Entry> cache = CACHES.get(level.dimension());
+        if (cache == null) {
+            misses++;
+            return null;
+        }
+        long key = SectionPos.asLong(sectionX, sectionY, sectionZ);
+        Entry entry = cache.getAndMoveToLast(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.snapshot().getVersion() != SectionVersions.get(level.dimension(), key)
+                || level.getGameTime() - entry.capturedTick() > MAX_AGE_TICKS) {
+            cache.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.snapshot();
+    }
+
+    /**
+     * Store a freshly copied section, tagged with its version at copy time.
+     */
+    public static void put(Level level, int sectionX, int sectionY, int sectionZ, SectionSnapshot snapshot) {
+        Long2ObjectLinkedOpenHashMap<Entry> cache = CACHES.computeIfAbsent(level.dimension(),
+                k -> new Long2ObjectLinkedOpenHashMap<>());
+        long key = SectionPos.asLong(sectionX, sectionY, sectionZ);
+        cache.putAndMoveToLast(key, new Entry(snapshot, level.getGameTime()));
+        while (cache.size() > MAX_SECTIONS) {
+            cache.removeFirst();
+        }
+    }
+
+    /**
+     * Drop all sections of a chunk.
+     */
+    static void evictChunk(Level level, ChunkPos chunk) {
+        Long2ObjectLinkedOpenHashMap<Entry> cache = CACHES.get(level.dimension());
+        if (cache == null) {
+            return;
+        }
+        for (int sy = level.getMinSection(); sy < level.getMaxSection(); sy++) {
+            cache.remove(SectionPos.asLong(chunk.x, sy, chunk.z));
+        }
+    }
+
+    /**
+     * Drop all sections of a level.
+     */
+    static void evictLevel(Level level) {
+        CACHES.remove(level.dimension());
+    }
+
+    public static long getHits() {
+        return hits;
+    }
+
+    public static long getMisses() {
+        return misses;
+    }
+}
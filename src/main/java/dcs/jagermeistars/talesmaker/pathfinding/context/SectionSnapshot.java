@@ -0,0 +1,203 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Immutable copy of one 16x16x16 chunk section.
+ * Stores global block state ids (not BlockState objects) behind a small per-section palette,
+ * so a lookup is a couple of array reads with no allocation or locking.
+ *
+ * Capturing a section only copies its paletted container (plain array copies, done on the
+ * main thread). The container is decoded into the id layout on first read, which normally
+ * happens on the pathfinding worker.
+ */
+public final class SectionSnapshot {
+    public static final int SIZE = 16;
+    public static final int VOLUME = SIZE * SIZE * SIZE;
+
+    /**
+     * Version of sections whose contents are not tied to a tracked world section.
+     */
+    public static final long NO_VERSION = -1;
+
+    // Palettes up to this size use one byte per block
+    private static final int BYTE_PALETTE_LIMIT = 256;
+
+    // SectionVersions value of the world section when it was copied
+    private final long version;
+
+    // Private copy of the section's container, decoded on demand and then dropped
+    // (null for uniform sections and once decoded). Guarded by this snapshot.
+    @Nullable
+    private PalettedContainer<BlockState> source;
+    private volatile Data data;
+
+    private SectionSnapshot(long version, @Nullable PalettedContainer<BlockState> source, @Nullable Data data) {
+        this.version = version;
+        this.source = source;
+        this.data = data;
+    }
+
+    /**
+     * Decoded section contents.
+     */
+    private static final class Data {
+        // Uniform sections (all air, all stone...) store a single id
+        final int uniformId;
+        // Palette of global state ids, indexed by byteIndices
+        final int[] palette;
+        final byte[] byteIndices;
+        // Fallback for sections with very large palettes: raw global ids
+        final int[] rawIds;
+
+        Data(int uniformId, int[] palette, byte[] byteIndices, int[] rawIds) {
+            this.uniformId = uniformId;
+            this.palette = palette;
+            this.byteIndices = byteIndices;
+            this.rawIds = rawIds;
+        }
+    }
+
+    /**
+     * Create a section where every block has the same state.
+     */
+    public static SectionSnapshot uniform(int stateId) {
+        return uniform(stateId, NO_VERSION);
+    }
+
+    /**
+     * Create a copy of a world section where every block has the same state.
+     */
+    public static SectionSnapshot uniform(int stateId, long version) {
+        return new SectionSnapshot(version, null, new Data(stateId, null, null, null));
+    }
+
+    /**
+     * Create a section where every block has the same state.
+     */
+    public static SectionSnapshot uniform(BlockState state) {
+        return uniform(Block.getId(state));
+    }
+
+    /**
+     * Snapshot a chunk section's block states.
+     * Only copies the container; decoding is deferred to the first read.
+     * MUST be called from the thread that owns the container (the main thread).
+     *
+     * @param states  the section's paletted container
+     * @param version the section's {@link SectionVersions} version at copy time
+     * @return immutable snapshot of the section
+     */
+    public static SectionSnapshot of(PalettedContainer<BlockState> states, long version) {
+        return new SectionSnapshot(version, states.copy(), null);
+    }
+
+    /**
+     * Decode the copied container. Synchronized so a section shared by several
+     * searches is only decoded once; the container copy is released afterwards.
+     */
+    private synchronized Data decode() {
+        Data result = data;
+        if (result != null) {
+            return result;
+        }
+        result = decode(source);
+        data = result;
+        source = null;
+        return result;
+    }
+
+    private static Data decode(PalettedContainer<BlockState> states) {
+        int[] ids = new int[VOLUME];
+        Int2IntOpenHashMap paletteIndex = new Int2IntOpenHashMap();
+        paletteIndex.defaultReturnValue(-1);
+        int[] palette = new int[16];
+        int paletteSize = 0;
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    int id = Block.getId(states.get(x, y, z));
+                    ids[index(x, y, z)] = id;
+                    if (paletteSize <= BYTE_PALETTE_LIMIT && paletteIndex.get(id) < 0) {
+                        if (paletteSize == palette.length) {
+                            palette = Arrays.copyOf(palette, paletteSize * 2);
+                        }
+                        paletteIndex.put(id, paletteSize);
+                        palette[paletteSize++] = id;
+                    }
+                }
+            }
+        }
+
+        if (paletteSize == 1) {
+            return new Data(palette[0], null, null, null);
+        }
+        if (paletteSize > BYTE_PALETTE_LIMIT) {
+            return new Data(-1, null, null, ids);
+        }
+
+        byte[] indices = new byte[VOLUME];
+        for (int i = 0; i < VOLUME; i++) {
+            indices[i] = (byte) paletteIndex.get(ids[i]);
+        }
+        return new Data(-1, Arrays.copyOf(palette, paletteSize), indices, null);
+    }
+
+    /**
+     * Get the global state id at local section coordinates (0-15).
+     */
+    public int getStateId(int localX, int localY, int localZ) {
+        Data d = data;
+        if (d == null) {
+            d = decode();
+        }
+        if (d.byteIndices != null) {
+            return d.palette[d.byteIndices[index(localX, localY, localZ)] & 0xFF];
+        }
+        if (d.rawIds != null) {
+            return d.rawIds[index(localX, localY, localZ)];
+        }
+        // Uniform ids may be negative (RegionSnapshot.UNKNOWN_ID)
+        return d.uniformId;
+    }
+
+    /**
+     * Check if every block in this section has the same state.
+     */
+    public boolean isUniform() {
+        Data d = data;
+        if (d == null) {
+            d = decode();
+        }
+        return d.byteIndices == null && d.rawIds == null;
+    }
+
+    /**
+     * Get the version of the world section this was copied from,
+     * or NO_VERSION if it is not tied to a tracked section.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Check if the section has been decoded yet.
+     */
+    public boolean isDecoded() {
+        return data != null;
+    }
+
+    /**
+     * Index layout matches vanilla section storage (y, then z, then x).
+     */
+    private static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+}
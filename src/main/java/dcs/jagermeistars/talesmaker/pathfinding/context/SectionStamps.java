@@ -0,0 +1,97 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongIterable;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+/**
+ * Versions of the sections a path was found through, taken from the region copy it was
+ * searched in. While they are all current, no block the path stands on or walks through
+ * has changed and the path can be reused as is.
+ *
+ * Immutable; safe to share between threads.
+ */
+public final class SectionStamps {
+    private final long[] keys;
+    private final long[] versions;
+    private final boolean valid;
+
+    private SectionStamps(long[] keys, long[] versions, boolean valid) {
+        this.keys = keys;
+        this.versions = versions;
+        this.valid = valid;
+    }
+
+    /**
+     * Stamp every section within a box around each cell, for values that also depend on
+     * the blocks next to the cells (moves, wide bodies).
+     * Sections the region hasn't copied are stamped at their current version, not fetched.
+     *
+     * @param cells      packed {@link BlockPos#asLong} positions
+     * @param horizontal blocks around each cell on x and z
+     * @param below      blocks under each cell
+     * @param above      blocks over each cell
+     */
+    public static SectionStamps around(RegionSnapshot region, LongIterable cells, int horizontal, int below,
+                                       int above) {
+        Long2LongOpenHashMap stamped = new Long2LongOpenHashMap();
+        boolean valid = true;
+        for (LongIterator it = cells.iterator(); it.hasNext(); ) {
+            long cell = it.nextLong();
+            int x = BlockPos.getX(cell);
+            int y = BlockPos.getY(cell);
+            int z = BlockPos.getZ(cell);
+            for (int sx = (x - horizontal) >> 4; sx <= (x + horizontal) >> 4; sx++) {
+                for (int sy = (y - below) >> 4; sy <= (y + above) >> 4; sy++) {
+                    for (int sz = (z - horizontal) >> 4; sz <= (z + horizontal) >> 4; sz++) {
+                        valid &= stamp(region, stamped, sx << 4, sy << 4, sz << 4);
+                    }
+                }
+            }
+        }
+        return from(stamped, valid);
+    }
+
+    private static SectionStamps from(Long2LongOpenHashMap stamped, boolean valid) {
+        long[] keys = new long[stamped.size()];
+        long[] versions = new long[stamped.size()];
+        int i = 0;
+        for (Long2LongMap.Entry entry : stamped.long2LongEntrySet()) {
+            keys[i] = entry.getLongKey();
+            versions[i] = entry.getLongValue();
+            i++;
+        }
+        return new SectionStamps(keys, versions, valid);
+    }
+
+    private static boolean stamp(RegionSnapshot region, Long2LongOpenHashMap stamped, int x, int y, int z) {
+        long key = SectionPos.asLong(x >> 4, y >> 4, z >> 4);
+        if (!stamped.containsKey(key)) {
+            stamped.put(key, region.peekSectionVersion(x >> 4, y >> 4, z >> 4));
+        }
+        return stamped.get(key) != SectionSnapshot.NO_VERSION;
+    }
+
+    /**
+     * Check if no stamped section has changed since.
+     * Always false if some section had no version (unloaded, or not a server level).
+     */
+    public boolean isCurrent(ResourceKey<Level> dimension) {
+        if (!valid) {
+            return false;
+        }
+        return SectionVersions.forDimension(dimension).matches(keys, versions);
+    }
+
+    /**
+     * Get the number of stamped sections.
+     */
+    public int size() {
+        return keys.length;
+    }
+}
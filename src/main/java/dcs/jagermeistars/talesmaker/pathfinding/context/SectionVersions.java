@@ -0,0 +1,198 @@
+package dcs.jagermeistars.talesmaker.pathfinding.context;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.ChunkEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Per-section change counters for server levels.
+ * A section's version changes whenever a block state in it is written - with or without
+ * neighbour updates, so doors and gates toggling count too - and when its chunk is loaded
+ * or unloaded. Anything derived from a section's blocks (cached snapshots, precomputed
+ * routes) stays valid while the version it was built at is current.
+ *
+ * Versions are written on the main thread and may be read from any thread. Each dimension
+ * has its own table behind a read-write lock, so checks from search threads only share a
+ * lock with each other and with writes to their own dimension; a check of many sections
+ * should fetch the {@link Table} once and read all of them from it.
+ */
+@EventBusSubscriber(modid = TalesMaker.MODID)
+public final class SectionVersions {
+    // Version of sections that are not tracked: never loaded in a server level, or unloaded.
+    // Loading a chunk bumps all its sections, so a loaded section never has this version.
+    public static final long INITIAL = 0;
+
+    private static final ConcurrentHashMap<ResourceKey<Level>, Table> TABLES = new ConcurrentHashMap<>();
+    private static final Table EMPTY = new Table();
+
+    // Global clock, so a version is never reused after a chunk reloads
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    /**
+     * Section versions of one dimension.
+     */
+    public static final class Table {
+        private final Long2LongOpenHashMap versions = new Long2LongOpenHashMap();
+        private final StampedLock lock = new StampedLock();
+
+        private Table() {
+        }
+
+        /**
+         * Get the current version of a section.
+         *
+         * @param sectionKey packed {@link SectionPos#asLong} key
+         */
+        public long get(long sectionKey) {
+            long stamp = lock.readLock();
+            try {
+                return versions.get(sectionKey);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Check if every section still has the version given for it, under a single lock.
+         *
+         * @param keys     packed {@link SectionPos#asLong} keys
+         * @param expected versions, by index into {@code keys}
+         */
+        public boolean matches(long[] keys, long[] expected) {
+            long stamp = lock.readLock();
+            try {
+                for (int i = 0; i < keys.length; i++) {
+                    if (versions.get(keys[i]) != expected[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private void put(long sectionKey, long version) {
+            long stamp = lock.writeLock();
+            try {
+                versions.put(sectionKey, version);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void putChunk(Level level, ChunkPos chunk, long version) {
+            long stamp = lock.writeLock();
+            try {
+                for (int sy = level.getMinSection(); sy < level.getMaxSection(); sy++) {
+                    versions.put(SectionPos.asLong(chunk.x, sy, chunk.z), version);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void removeChunk(Level level, ChunkPos chunk) {
+            long stamp = lock.writeLock();
+            try {
+                for (int sy = level.getMinSection(); sy < level.getMaxSection(); sy++) {
+                    versions.remove(SectionPos.asLong(chunk.x, sy, chunk.z));
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private SectionVersions() {
+        // Utility class
+    }
+
+    /**
+     * Get the version table of a dimension.
+     */
+    public static Table forDimension(ResourceKey<Level> dimension) {
+        return TABLES.getOrDefault(dimension, EMPTY);
+    }
+
+    /**
+     * Get the current version of a section.
+     *
+     * @param sectionKey packed {@link SectionPos#asLong} key
+     */
+    public static long get(ResourceKey<Level> dimension, long sectionKey) {
+        return forDimension(dimension).get(sectionKey);
+    }
+
+    /**
+     * Get the current version of the section containing a block.
+     */
+    public static long getAt(ResourceKey<Level> dimension, int x, int y, int z) {
+        return get(dimension, SectionPos.asLong(x >> 4, y >> 4, z >> 4));
+    }
+
+    /**
+     * Mark the section containing a block as changed.
+     * Called for every block state write of a server level chunk (see LevelChunkMixin).
+     */
+    public static void bump(Level level, BlockPos pos) {
+        table(level.dimension()).put(SectionPos.asLong(pos), CLOCK.incrementAndGet());
+    }
+
+    /**
+     * Mark every section of a chunk as changed.
+     */
+    private static void bumpChunk(Level level, ChunkPos chunk) {
+        table(level.dimension()).putChunk(level, chunk, CLOCK.incrementAndGet());
+    }
+
+    private static Table table(ResourceKey<Level> dimension) {
+        return TABLES.computeIfAbsent(dimension, k -> new Table());
+    }
+
+    /**
+     * Forget the versions of an unloaded chunk. Its next load assigns a fresh version.
+     */
+    private static void forgetChunk(Level level, ChunkPos chunk) {
+        Table table = TABLES.get(level.dimension());
+        if (table != null) {
+            table.removeChunk(level, chunk);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (event.getLevel() instanceof Level level && !level.isClientSide()) {
+            bumpChunk(level, event.getChunk().getPos());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (event.getLevel() instanceof Level level && !level.isClientSide()) {
+            ChunkPos chunk = event.getChunk().getPos();
+            forgetChunk(level, chunk);
+            SectionCache.evictChunk(level, chunk);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level && !level.isClientSide()) {
+            TABLES.remove(level.dimension());
+            SectionCache.evictLevel(level);
+        }
+    }
+}
@@ -1,33 +1,54 @@
 package dcs.jagermeistars.talesmaker.pathfinding.context;
 
 import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
-import dcs.jagermeistars.talesmaker.pathfinding.movement.PassageAnalyzer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
-import net.minecraft.tags.BlockTags;
-import net.minecraft.tags.FluidTags;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.level.block.DoorBlock;
-import net.minecraft.world.level.block.TrapDoorBlock;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.shapes.VoxelShape;
 
+import javax.annotation.Nullable;
+
 /**
  * Thread-safe world context for async pathfinding.
  * Captures a region of the world before pathfinding starts.
+ * The captured snapshot is immutable, so lookups need no locking.
+ * Block predicates read precomputed {@link BlockTraits} bits by state id.
+ * Entity-shaped queries (standable, headroom, walls, clearance for wide footprints) are
+ * memoized per snapshot in packed layers, so each cell is derived at most once per capture.
  */
 public class WorldContext {
-    private final BlockStateCache cache;
+    // Published to the worker through the executor hand-off
+    private RegionSnapshot snapshot = RegionSnapshot.EMPTY;
     private final PathingConfig config;
+    private final BlockTraits traits;
+
+    // Derived layers for this config's entity size, reset with every capture
+    private CellLayer standableLayer;
+    private CellLayer headroomLayer;
+    private CellLayer wallLayer;
+    private ClearanceLayer clearanceLayer;
+
+    // Set when a lookup hit a block of an unloaded chunk
+    private boolean touchedUnknown;
 
     public WorldContext(PathingConfig config) {
-        this.cache = new BlockStateCache();
         this.config = config;
+        this.traits = BlockTraits.forConfig(config);
+        setSnapshot(RegionSnapshot.EMPTY);
+    }
+
+    private void setSnapshot(RegionSnapshot region) {
+        snapshot = region;
+        touchedUnknown = false;
+        standableLayer = new CellLayer(region);
+        headroomLayer = new CellLayer(region);
+        wallLayer = new CellLayer(region);
+        clearanceLayer = new ClearanceLayer(region);
     }
 
     /**
-     * Capture a cubic region of the world into the cache.
+     * Capture a cubic region of the world into the snapshot.
      * MUST be called from the main thread before async pathfinding.
      *
      * @param level  the world
@@ -35,66 +56,89 @@ public class WorldContext {
      * @param radius radius in blocks
      */
     public void captureRegion(Level level, BlockPos center, int radius) {
-        cache.clear();
-        int minX = center.getX() - radius;
-        int maxX = center.getX() + radius;
-        int minY = Math.max(level.getMinBuildHeight(), center.getY() - radius);
-        int maxY = Math.min(level.getMaxBuildHeight(), center.getY() + radius);
-        int minZ = center.getZ() - radius;
-        int maxZ = center.getZ() + radius;
-
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = minY; y <= maxY; y++) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    BlockPos pos = new BlockPos(x, y, z);
-                    cache.put(x, y, z, level.getBlockState(pos));
-                }
-            }
-        }
+        setSnapshot(RegionSnapshot.capture(level,
+                center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius));
     }
 
     /**
      * Capture a region between two points.
      */
     public void captureRegion(Level level, BlockPos from, BlockPos to, int padding) {
-        cache.clear();
-        int minX = Math.min(from.getX(), to.getX()) - padding;
-        int maxX = Math.max(from.getX(), to.getX()) + padding;
-        int minY = Math.max(level.getMinBuildHeight(), Math.min(from.getY(), to.getY()) - padding);
-        int maxY = Math.min(level.getMaxBuildHeight(), Math.max(from.getY(), to.getY()) + padding);
-        int minZ = Math.min(from.getZ(), to.getZ()) - padding;
-        int maxZ = Math.max(from.getZ(), to.getZ()) + padding;
-
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = minY; y <= maxY; y++) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    cache.put(x, y, z, level.getBlockState(new BlockPos(x, y, z)));
-                }
-            }
+        setSnapshot(RegionSnapshot.capture(level,
+                Math.min(from.getX(), to.getX()) - padding,
+                Math.min(from.getY(), to.getY()) - padding,
+                Math.min(from.getZ(), to.getZ()) - padding,
+                Math.max(from.getX(), to.getX()) + padding,
+                Math.max(from.getY(), to.getY()) + padding,
+                Math.max(from.getZ(), to.getZ()) + padding));
+    }
+
+    /**
+     * Lazily capture a cubic region of the world.
+     * Only the sections around the start and along the straight line to the target are
+     * copied now; the rest are copied from the main thread when the search first reads them.
+     * MUST be called from the main thread before async pathfinding.
+     *
+     * @param level  the world
+     * @param center center of the region (search start)
+     * @param radius radius in blocks
+     * @param target approximate search target for prefetching, or null if unknown
+     */
+    public void captureRegionLazy(Level level, BlockPos center, int radius, @Nullable BlockPos target) {
+        RegionSnapshot region = RegionSnapshot.captureLazy(level,
+                center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+        region.prefetch(center.getX(), center.getY(), center.getZ());
+        if (target != null) {
+            region.prefetchLine(center.getX(), center.getY(), center.getZ(),
+                    target.getX(), target.getY(), target.getZ());
         }
+        setSnapshot(region);
+    }
+
+    /**
+     * Lazily capture the box spanned by a start and a far target, for long-range routing.
+     * The box is clipped to maxRange around the start; only the sections around the start
+     * and along the line to the target are copied now.
+     * MUST be called from the main thread before async pathfinding.
+     *
+     * @param padding  blocks added around the start-target box
+     * @param maxRange maximum distance of the box from the start
+     */
+    public void captureRouteRegion(Level level, BlockPos start, BlockPos target, int padding, int maxRange) {
+        int minX = Math.max(Math.min(start.getX(), target.getX()) - padding, start.getX() - maxRange);
+        int minY = Math.max(Math.min(start.getY(), target.getY()) - padding, start.getY() - maxRange);
+        int minZ = Math.max(Math.min(start.getZ(), target.getZ()) - padding, start.getZ() - maxRange);
+        int maxX = Math.min(Math.max(start.getX(), target.getX()) + padding, start.getX() + maxRange);
+        int maxY = Math.min(Math.max(start.getY(), target.getY()) + padding, start.getY() + maxRange);
+        int maxZ = Math.min(Math.max(start.getZ(), target.getZ()) + padding, start.getZ() + maxRange);
+        RegionSnapshot region = RegionSnapshot.captureLazy(level, minX, minY, minZ, maxX, maxY, maxZ);
+        region.prefetch(start.getX(), start.getY(), start.getZ());
+        region.prefetchLine(start.getX(), start.getY(), start.getZ(), target.getX(), target.getY(), target.getZ());
+        setSnapshot(region);
     }
 
     /**
-     * Get block state from cache.
+     * Get block state from the snapshot.
      * Returns STONE for uncached blocks (safe default - treated as impassable).
      */
     public BlockState getBlockState(BlockPos pos) {
-        return cache.getOrDefault(pos, Blocks.STONE.defaultBlockState());
+        return snapshot.getBlockState(pos.getX(), pos.getY(), pos.getZ());
     }
 
     /**
-     * Get block state from cache using coordinates.
+     * Get block state from the snapshot using coordinates.
      */
     public BlockState getBlockState(int x, int y, int z) {
-        BlockState state = cache.get(x, y, z);
-        return state != null ? state : Blocks.STONE.defaultBlockState();
+        return snapshot.getBlockState(x, y, z);
     }
 
     /**
      * Check if position is in the cached region.
      */
     public boolean isCached(int x, int y, int z) {
-        return cache.contains(x, y, z);
+        return snapshot.contains(x, y, z);
     }
 
     /**
@@ -105,46 +149,29 @@ public class WorldContext {
     }
 
     /**
-     * Check if a position is passable.
+     * Get the trait bits of the block at a position.
      */
-    public boolean isPassable(int x, int y, int z) {
-        BlockState state = getBlockState(x, y, z);
-
-        // Air is always passable
-        if (state.isAir()) {
-            return true;
-        }
-
-        // Check for fluids - water is passable if swimming allowed
-        if (!state.getFluidState().isEmpty()) {
-            return config.canSwim() || state.getFluidState().is(FluidTags.WATER);
-        }
-
-        // Check collision shape
-        // Note: We can't use level here, so we approximate
-        if (state.getBlock() instanceof DoorBlock) {
-            // Check if NPC can open doors and fits through door passage (0.7 blocks wide)
-            boolean canOpen = config.canOpenDoors() || state.getValue(DoorBlock.OPEN);
-            if (!canOpen) {
-                return false;
-            }
-            // NPC must fit through door passage width
-            return config.getEntityWidth() <= PassageAnalyzer.DOOR_PASSAGE_WIDTH;
-        }
-
-        if (state.getBlock() instanceof TrapDoorBlock) {
-            return config.canOpenDoors() || state.getValue(TrapDoorBlock.OPEN);
+    public int getTraits(int x, int y, int z) {
+        int bits = traits.get(snapshot.getStateId(x, y, z));
+        if ((bits & BlockTraits.UNKNOWN) != 0) {
+            touchedUnknown = true;
         }
+        return bits;
+    }
 
-        // Climbable blocks are passable
-        if (state.is(BlockTags.CLIMBABLE)) {
-            return true;
-        }
+    /**
+     * Check if any lookup since the last capture hit an unloaded chunk,
+     * i.e. the search may have been cut short by terrain that is not loaded yet.
+     */
+    public boolean hasTouchedUnknown() {
+        return touchedUnknown;
+    }
 
-        // Use getCollisionShape to check if block has collision
-        // Empty collision shape = passable
-        // Note: Using VoxelShapes.empty() check since we don't have level context
-        return !state.blocksMotion();
+    /**
+     * Check if a position is passable.
+     */
+    public boolean isPassable(int x, int y, int z) {
+        return (getTraits(x, y, z) & BlockTraits.PASSABLE) != 0;
     }
 
     /**
@@ -158,8 +185,14 @@ public class WorldContext {
      * Check if a position is solid.
      */
     public boolean isSolid(int x, int y, int z) {
-        BlockState state = getBlockState(x, y, z);
-        return state.isSolid();
+        return (getTraits(x, y, z) & BlockTraits.SOLID) != 0;
+    }
+
+    /**
+     * Check if the block at a position has collision (non-air and blocks motion).
+     */
+    public boolean blocksMotion(int x, int y, int z) {
+        return (getTraits(x, y, z) & BlockTraits.BLOCKS_MOTION) != 0;
     }
 
     /**
@@ -180,16 +213,14 @@ public class WorldContext {
      * Check if a position contains water.
      */
     public boolean isWater(int x, int y, int z) {
-        BlockState state = getBlockState(x, y, z);
-        return state.getFluidState().is(FluidTags.WATER);
+        return (getTraits(x, y, z) & BlockTraits.WATER) != 0;
     }
 
     /**
      * Check if a position contains lava.
      */
     public boolean isLava(int x, int y, int z) {
-        BlockState state = getBlockState(x, y, z);
-        return state.getFluidState().is(FluidTags.LAVA);
+        return (getTraits(x, y, z) & BlockTraits.LAVA) != 0;
     }
 
     /**
@@ -201,32 +232,25 @@ public class WorldContext {
 
     /**
      * Check if a position is climbable.
+     * Always false when the config disallows climbing.
      */
     public boolean isClimbable(int x, int y, int z) {
-        if (!config.canClimb()) {
-            return false;
-        }
-        BlockState state = getBlockState(x, y, z);
-        return state.is(BlockTags.CLIMBABLE);
+        return (getTraits(x, y, z) & BlockTraits.CLIMBABLE) != 0;
     }
 
     /**
      * Check if a position is a door.
      */
     public boolean isDoor(int x, int y, int z) {
-        BlockState state = getBlockState(x, y, z);
-        return state.getBlock() instanceof DoorBlock;
+        return (getTraits(x, y, z) & BlockTraits.DOOR) != 0;
     }
 
     /**
      * Check if a door at position is open.
      */
     public boolean isDoorOpen(int x, int y, int z) {
-        BlockState state = getBlockState(x, y, z);
-        if (state.getBlock() instanceof DoorBlock) {
-            return state.getValue(DoorBlock.OPEN);
-        }
-        return false;
+        int bits = getTraits(x, y, z);
+        return (bits & BlockTraits.DOOR) != 0 && (bits & BlockTraits.OPEN) != 0;
     }
 
     /**
@@ -251,12 +275,11 @@ public class WorldContext {
 
         // Check partial block at top if needed
         if (remainder > 0.01f) {
-            BlockState topState = getBlockState(x, y + fullBlocks, z);
+            int topBits = getTraits(x, y + fullBlocks, z);
             // If the top block is not passable, check its collision shape
-            if (!topState.isAir() && topState.blocksMotion()) {
-                // Get the minimum Y of the collision shape
-                // For top slabs, this would be 0.5, for bottom slabs it's 0
-                double minY = getCollisionMinY(topState);
+            if ((topBits & BlockTraits.BLOCKS_MOTION) != 0) {
+                // Minimum Y of the collision shape: 0.5 for top slabs, 0 for bottom slabs and full blocks
+                double minY = (topBits & BlockTraits.TOP_SLAB) != 0 ? 0.5 : 0.0;
                 // If our remainder height extends into the solid part, we can't fit
                 if (remainder > minY) {
                     return false;
@@ -268,47 +291,75 @@ public class WorldContext {
     }
 
     /**
-     * Get the minimum Y coordinate of a block's collision shape.
-     * Returns 0 for full blocks, 0.5 for top slabs, etc.
+     * Legacy method for integer height.
      */
-    private double getCollisionMinY(BlockState state) {
-        // For slabs, check if it's a top slab
-        if (state.hasProperty(net.minecraft.world.level.block.SlabBlock.TYPE)) {
-            net.minecraft.world.level.block.state.properties.SlabType type =
-                state.getValue(net.minecraft.world.level.block.SlabBlock.TYPE);
-            if (type == net.minecraft.world.level.block.state.properties.SlabType.TOP) {
-                return 0.5; // Top slab starts at Y=0.5
-            } else if (type == net.minecraft.world.level.block.state.properties.SlabType.BOTTOM) {
-                return 0.0; // Bottom slab starts at Y=0
-            }
-            // DOUBLE type is full block
-        }
-        // Default: full block starts at 0
-        return 0.0;
+    public boolean hasHeadroom(int x, int y, int z, int requiredHeight) {
+        return hasHeadroom(x, y, z, (float) requiredHeight);
     }
 
     /**
-     * Legacy method for integer height.
+     * Check if there's enough headroom for this config's entity height.
+     * Memoized per snapshot.
      */
-    public boolean hasHeadroom(int x, int y, int z, int requiredHeight) {
-        return hasHeadroom(x, y, z, (float) requiredHeight);
+    public boolean hasHeadroom(int x, int y, int z) {
+        int cached = headroomLayer.get(x, y, z);
+        if (cached != CellLayer.UNKNOWN) {
+            return cached == 1;
+        }
+        boolean result = hasHeadroom(x, y, z, config.getEntityHeight());
+        headroomLayer.set(x, y, z, result);
+        return result;
     }
 
     /**
      * Check if entity can stand at position (passable + solid ground below).
-     * Takes into account both entity height and width.
+     * Takes into account both entity height and width. Memoized per snapshot.
      */
     public boolean canStandAt(int x, int y, int z) {
-        float height = config.getEntityHeight();
-        float width = config.getEntityWidth();
+        int cached = standableLayer.get(x, y, z);
+        if (cached != CellLayer.UNKNOWN) {
+            return cached == 1;
+        }
 
+        boolean result;
         // For entities wider than 1 block, check multiple positions
-        if (width > 1.0f) {
-            return hasFootprint(x, y, z, width, height);
+        if (config.getEntityWidth() > 1.0f) {
+            result = hasFootprint(x, y, z, config.getEntityWidth(), config.getEntityHeight());
+        } else {
+            // Standard check for normal-sized entities
+            result = hasHeadroom(x, y, z) && hasSolidGround(x, y, z);
         }
+        standableLayer.set(x, y, z, result);
+        return result;
+    }
 
-        // Standard check for normal-sized entities
-        return hasHeadroom(x, y, z, height) && hasSolidGround(x, y, z);
+    /**
+     * Get the side of the largest square of cells with headroom for this config's entity
+     * that has a cell as its low x/z corner, computed no further than needed.
+     * Memoized per snapshot.
+     *
+     * @param size largest side of interest, at most {@link ClearanceLayer#MAX}
+     * @return the clearance, capped at {@code size}
+     */
+    public int getClearance(int x, int y, int z, int size) {
+        int cached = clearanceLayer.get(x, y, z, size);
+        if (cached != ClearanceLayer.UNKNOWN) {
+            return cached;
+        }
+        int result;
+        if (!hasHeadroom(x, y, z)) {
+            result = 0;
+        } else if (size == 1) {
+            result = 1;
+        } else {
+            // A square of side n fits here if squares of side n - 1 fit at the three
+            // neighbours further along x and z
+            result = 1 + Math.min(getClearance(x + 1, y, z, size - 1),
+                    Math.min(getClearance(x, y, z + 1, size - 1), getClearance(x + 1, y, z + 1, size - 1)));
+        }
+        // Below the cap the value is exact; at the cap it is only a lower bound
+        clearanceLayer.set(x, y, z, result, result < size);
+        return result;
     }
 
     /**
@@ -349,11 +400,19 @@ public class WorldContext {
         int minBlockZ = minBlockX;
         int maxBlockZ = maxBlockX;
 
-        // Check all blocks in the footprint for headroom
-        for (int dx = minBlockX; dx <= maxBlockX; dx++) {
-            for (int dz = minBlockZ; dz <= maxBlockZ; dz++) {
-                if (!hasHeadroom(x + dx, y, z + dz, height)) {
-                    return false;
+        // Check all blocks in the footprint for headroom: one clearance read for our own
+        // entity height, cell by cell otherwise
+        int size = maxBlockX - minBlockX + 1;
+        if (height == config.getEntityHeight() && size <= ClearanceLayer.MAX) {
+            if (getClearance(x + minBlockX, y, z + minBlockZ, size) < size) {
+                return false;
+            }
+        } else {
+            for (int dx = minBlockX; dx <= maxBlockX; dx++) {
+                for (int dz = minBlockZ; dz <= maxBlockZ; dz++) {
+                    if (!hasHeadroom(x + dx, y, z + dz, height)) {
+                        return false;
+                    }
                 }
             }
         }
@@ -370,6 +429,48 @@ public class WorldContext {
         return false;
     }
 
+    /**
+     * Check if a position blocks horizontal movement for this config's entity.
+     * Unlike hasHeadroom which checks vertical space, any block with collision from feet
+     * to head level counts as a wall (including bottom slabs, fences, etc.).
+     * Memoized per snapshot.
+     */
+    public boolean isWall(int x, int y, int z) {
+        int cached = wallLayer.get(x, y, z);
+        if (cached != CellLayer.UNKNOWN) {
+            return cached == 1;
+        }
+        boolean result = false;
+        int fullBlocks = (int) Math.ceil(config.getEntityHeight());
+        for (int dy = 0; dy < fullBlocks; dy++) {
+            if (blocksMotion(x, y + dy, z)) {
+                result = true;
+                break;
+            }
+        }
+        wallLayer.set(x, y, z, result);
+        return result;
+    }
+
+    /**
+     * Find the offset of the nearest wall along an axis.
+     *
+     * @param alongX      true to search along X, false along Z
+     * @param direction   -1 for negative, +1 for positive
+     * @param maxDistance maximum distance to search
+     * @return offset where a wall is found, or maxDistance * direction if none
+     */
+    public int findWallDistance(int x, int y, int z, boolean alongX, int direction, int maxDistance) {
+        for (int i = 1; i <= maxDistance; i++) {
+            int offset = i * direction;
+            boolean wall = alongX ? isWall(x + offset, y, z) : isWall(x, y, z + offset);
+            if (wall) {
+                return offset;
+            }
+        }
+        return maxDistance * direction;
+    }
+
     /**
      * Find how far an entity would fall from a position.
      *
@@ -404,16 +505,24 @@ public class WorldContext {
     }
 
     /**
-     * Get the cache (for advanced usage).
+     * Get the captured snapshot (for advanced usage).
+     */
+    public RegionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Get the time spent waiting on the main thread for lazily copied sections, over the
+     * whole request. Searches sharing the context subtract only the growth since their start.
      */
-    public BlockStateCache getCache() {
-        return cache;
+    public long getFetchWaitNanos() {
+        return snapshot.getFetchWaitNanos();
     }
 
     /**
-     * Clear the cache.
+     * Drop the captured snapshot.
      */
     public void clear() {
-        cache.clear();
+        setSnapshot(RegionSnapshot.EMPTY);
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package dcs.jagermeistars.talesmaker.pathfinding.flow;
+
+import dcs.jagermeistars.talesmaker.pathfinding.calc.BinaryHeapOpenSet;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.MoveGenerator;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.NodeArena;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionStamps;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.path.CutoffPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.Path;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Distance field around one cell: Dijkstra run backwards over the fine movement rules.
+ * Every node's g cost is its cost to reach the root and its parent is the next step
+ * towards it, so a path from any covered cell is just the parent chain.
+ *
+ * Immutable once built; read by several search threads at once.
+ */
+final class FlowField {
+    /**
+     * Cells further than this from the root (per axis) are left out.
+     */
+    static final int RADIUS = 32;
+
+    // Build limits
+    private static final int MAX_NODES = 16384;
+    private static final long TIMEOUT_MS = 50;
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    private final BlockPos target;
+    private final BlockPos root;
+    private final NodeArena arena;
+    private final SectionStamps stamps;
+
+    private FlowField(BlockPos target, BlockPos root, NodeArena arena, SectionStamps stamps) {
+        this.target = target;
+        this.root = root;
+        this.arena = arena;
+        this.stamps = stamps;
+    }
+
+    /**
+     * Grow a field from the standable cell at or just below a target.
+     *
+     * @return the field, or null if there is no standable cell under the target
+     */
+    @Nullable
+    static FlowField build(BlockPos target, WorldContext context) {
+        BlockPos root = findRoot(target, context);
+        if (root == null) {
+            return null;
+        }
+
+        NodeArena arena = new NodeArena();
+        BinaryHeapOpenSet openSet = arena.getOpenSet();
+        MoveGenerator moves = new MoveGenerator(context);
+
+        int rootNode = arena.getOrCreate(root.getX(), root.getY(), root.getZ());
+        arena.setGCost(rootNode, 0);
+        openSet.insert(rootNode);
+
+        long startTime = System.nanoTime();
+        long fetchWaitAtStart = context.getFetchWaitNanos();
+        long maxTimeNanos = TIMEOUT_MS * 1_000_000L;
+        int settled = 0;
+        while (!openSet.isEmpty() && settled < MAX_NODES) {
+            if ((settled & (TIME_CHECK_INTERVAL - 1)) == 0
+                    && System.nanoTime() - startTime - (context.getFetchWaitNanos() - fetchWaitAtStart)
+                            > maxTimeNanos) {
+                break;
+            }
+
+            int current = openSet.poll();
+            settled++;
+            float g = arena.getGCost(current);
+            moves.predecessors(arena.getX(current), arena.getY(current), arena.getZ(current), (x, y, z, cost) -> {
+                if (Math.abs(x - root.getX()) > RADIUS || Math.abs(y - root.getY()) > RADIUS
+                        || Math.abs(z - root.getZ()) > RADIUS) {
+                    return;
+                }
+                float newG = g + (float) cost;
+                int node = arena.getOrCreate(x, y, z);
+                if (newG < arena.getGCost(node)) {
+                    arena.setGCost(node, newG);
+                    arena.setParent(node, current);
+                    if (arena.isInHeap(node)) {
+                        openSet.update(node);
+                    } else {
+                        openSet.insert(node);
+                    }
+                }
+            });
+        }
+        // Nodes still queued keep a valid (if not yet the cheapest) chain to the root
+        openSet.clear();
+
+        // Remember the sections the field was read from, as the incremental planner does
+        int headroom = (int) Math.ceil(context.getConfig().getEntityHeight());
+        LongOpenHashSet cells = new LongOpenHashSet(arena.size());
+        for (int node = 0; node < arena.size(); node++) {
+            cells.add(BlockPos.asLong(arena.getX(node), arena.getY(node), arena.getZ(node)));
+        }
+        SectionStamps stamps = SectionStamps.around(context.getSnapshot(), cells, 0, 1, headroom);
+        return new FlowField(target, root, arena, stamps);
+    }
+
+    /**
+     * The target itself, or the first standable cell below it (targets may be mid-jump).
+     */
+    @Nullable
+    private static BlockPos findRoot(BlockPos target, WorldContext context) {
+        int maxDrop = context.getConfig().getMaxFallDistance() + 1;
+        for (int dy = 0; dy <= maxDrop; dy++) {
+            if (context.canStandAt(target.getX(), target.getY() - dy, target.getZ())) {
+                return target.below(dy);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the target position the field was grown for.
+     */
+    BlockPos getTarget() {
+        return target;
+    }
+
+    /**
+     * Check if no section the field was read from has changed.
+     */
+    boolean isCurrent(ResourceKey<Level> dimension) {
+        return stamps.isCurrent(dimension);
+    }
+
+    /**
+     * Descend the field from a cell until the goal is satisfied or the root is reached.
+     *
+     * @return the path, or null if the cell is not covered by the field
+     */
+    @Nullable
+    IPath pathFrom(BlockPos start, Goal goal, int maxLength) {
+        int node = arena.find(start.getX(), start.getY(), start.getZ());
+        if (node == NodeArena.NONE) {
+            return null;
+        }
+
+        float startCost = arena.getGCost(node);
+        List<BlockPos> positions = new ArrayList<>();
+        while (true) {
+            positions.add(arena.getPos(node));
+            int parent = arena.getParent(node);
+            if (parent == NodeArena.NONE || goal.isAtGoal(arena.getX(node), arena.getY(node), arena.getZ(node))) {
+                return new Path(positions, Collections.emptyList(), goal, startCost - arena.getGCost(node), true);
+            }
+            if (positions.size() >= maxLength) {
+                return new CutoffPath(positions, Collections.emptyList(), goal, startCost - arena.getGCost(node));
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * Get the number of cells covered.
+     */
+    int size() {
+        return arena.size();
+    }
+}
@@ -0,0 +1,168 @@
+package dcs.jagermeistars.talesmaker.pathfinding.flow;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.LevelEvent;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared distance field for NPCs following the same entity.
+ *
+ * Instead of one A* per follower per repath, the first follower that asks after the target
+ * moved grows a {@link FlowField} outward from the target and every later follower just walks
+ * down it. The field is regrown when the target leaves its cell neighbourhood or a section it
+ * was read from changes. A lone follower never pays for a field: it is only built once a
+ * second follower asks about the same target position.
+ *
+ * One service per followed entity and movement profile. Thread-safe.
+ */
+@EventBusSubscriber(modid = TalesMaker.MODID)
+public final class FlowFieldService {
+    /**
+     * Padding (in blocks) the world capture needs around the target for a full field.
+     */
+    public static final int CAPTURE_PADDING = FlowField.RADIUS;
+
+    // How far the target may move (per axis) before the field is regrown
+    private static final int TARGET_TOLERANCE = 1;
+
+    // Followed entities tracked before the map is flushed
+    private static final int MAX_SERVICES = 32;
+
+    private static final ConcurrentHashMap<Key, FlowFieldService> SERVICES = new ConcurrentHashMap<>();
+
+    /**
+     * Followed entity plus the config values that change which moves are possible.
+     */
+    private record Key(ResourceKey<Level> dimension, UUID target, float width, float height, int maxFall,
+                       boolean canSwim, boolean canClimb, boolean canOpenDoors, boolean canParkour) {
+    }
+
+    private final ResourceKey<Level> dimension;
+
+    // Guarded by this service
+    private FlowField field;
+    // Identity of the field being grown outside the lock, and the target position it is for
+    private Object building;
+    private BlockPos buildingTarget;
+
+    // Target position and requester of the last request that found no usable field
+    private BlockPos pendingTarget;
+    private WeakReference<Object> pendingRequester;
+
+    private FlowFieldService(ResourceKey<Level> dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * Get the shared service for an entity and movement config.
+     */
+    public static FlowFieldService forTarget(ResourceKey<Level> dimension, Entity target, PathingConfig config) {
+        Key key = new Key(dimension, target.getUUID(), config.getEntityWidth(), config.getEntityHeight(),
+                config.getMaxFallDistance(), config.canSwim(), config.canClimb(), config.canOpenDoors(),
+                config.canParkour());
+        FlowFieldService service = SERVICES.get(key);
+        if (service == null) {
+            if (SERVICES.size() >= MAX_SERVICES) {
+                SERVICES.clear();
+            }
+            service = SERVICES.computeIfAbsent(key, k -> new FlowFieldService(dimension));
+        }
+        return service;
+    }
+
+    /**
+     * Get a follower's path from the shared field, growing the field if it's worth it.
+     * The field is grown once, outside the lock. Followers asking meanwhile don't wait for
+     * it - that would park a worker on another worker - and search on their own this time.
+     *
+     * @param goal      the follow goal
+     * @param target    target position at request time
+     * @param start     follower position
+     * @param context   world data captured for this request (padded by {@link #CAPTURE_PADDING} around the target)
+     * @param requester the follower's calculator
+     * @return the path, or null if the follower should run its own search
+     */
+    @Nullable
+    public IPath pathFrom(Goal goal, BlockPos target, BlockPos start, WorldContext context, Object requester) {
+        FlowField current;
+        Object build = null;
+        synchronized (this) {
+            if (field != null && !(isNear(field.getTarget(), target) && field.isCurrent(dimension))) {
+                field = null;
+            }
+            current = field;
+            if (current == null) {
+                if (building != null && isNear(buildingTarget, target)) {
+                    // Being grown for this target right now
+                    return null;
+                }
+                if (pendingTarget == null || pendingRequester.get() == requester || !isNear(pendingTarget, target)) {
+                    // Only one follower asked for this target so far - it searches on its own
+                    pendingTarget = target;
+                    pendingRequester = new WeakReference<>(requester);
+                    return null;
+                }
+                build = new Object();
+                building = build;
+                buildingTarget = target;
+                pendingTarget = null;
+                pendingRequester = null;
+            }
+        }
+
+        if (build != null) {
+            current = grow(target, context, build);
+        }
+        return current != null ? current.pathFrom(start, goal, context.getConfig().getMaxPathLength()) : null;
+    }
+
+    @Nullable
+    private FlowField grow(BlockPos target, WorldContext context, Object build) {
+        long startTime = System.nanoTime();
+        FlowField built = null;
+        try {
+            built = FlowField.build(target, context);
+        } finally {
+            synchronized (this) {
+                // Unless a build for a newer target position took over meanwhile
+                if (building == build) {
+                    building = null;
+                    buildingTarget = null;
+                    field = built;
+                }
+            }
+        }
+        if (built != null) {
+            TalesMaker.LOGGER.debug("[Pathfinding] Flow field around {}: {} cells in {}ms",
+                    target, built.size(), (System.nanoTime() - startTime) / 1_000_000);
+        }
+        return built;
+    }
+
+    private static boolean isNear(BlockPos a, BlockPos b) {
+        return Math.abs(a.getX() - b.getX()) <= TARGET_TOLERANCE
+                && Math.abs(a.getY() - b.getY()) <= TARGET_TOLERANCE
+                && Math.abs(a.getZ() - b.getZ()) <= TARGET_TOLERANCE;
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level && !level.isClientSide()) {
+            SERVICES.keySet().removeIf(key -> key.dimension().equals(level.dimension()));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package dcs.jagermeistars.talesmaker.pathfinding.goals;
 
 import net.minecraft.core.BlockPos;
 
+import javax.annotation.Nullable;
+
 /**
  * Base interface for pathfinding goals.
  * Goals define where the entity wants to go and provide heuristics for A*.
@@ -40,6 +42,26 @@ public interface Goal {
         return true;
     }
 
+    /**
+     * Get an approximate target block, used to prefetch world data along the way.
+     * Called on the main thread when a path is requested.
+     *
+     * @return target block, or null if the goal has no single target
+     */
+    @Nullable
+    default BlockPos getTargetPos() {
+        return null;
+    }
+
+    /**
+     * Get a copy of this goal that no longer changes, for a search on another thread.
+     * Called on the main thread when a path is requested; goals that read live state
+     * (entities, patrol progress) freeze it here. Immutable goals return themselves.
+     */
+    default Goal snapshot() {
+        return this;
+    }
+
     /**
      * Convenience method to check goal at BlockPos.
      */
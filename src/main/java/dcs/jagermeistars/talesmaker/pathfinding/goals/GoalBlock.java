@@ -57,6 +57,11 @@ public class GoalBlock implements Goal {
         return new BlockPos(x, y, z);
     }
 
+    @Override
+    public BlockPos getTargetPos() {
+        return getBlockPos();
+    }
+
     @Override
     public String toString() {
         return "GoalBlock{" + x + ", " + y + ", " + z + "}";
@@ -3,9 +3,12 @@ package dcs.jagermeistars.talesmaker.pathfinding.goals;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.entity.Entity;
 
+import javax.annotation.Nullable;
+
 /**
  * Goal to follow a moving entity.
  * Dynamically updates target position based on entity location.
+ * Searches get a {@link #snapshot()} with the target position frozen.
  */
 public class GoalFollow implements Goal {
 
@@ -15,6 +18,11 @@ public class GoalFollow implements Goal {
     private final int minDistanceSq;
     private final int maxDistanceSq;
 
+    // Snapshots only: target position when frozen (null if the target was gone)
+    private final boolean frozen;
+    @Nullable
+    private final BlockPos frozenPos;
+
     /**
      * Create a follow goal with default distances.
      * @param target Entity to follow
@@ -30,20 +38,39 @@ public class GoalFollow implements Goal {
      * @param maxDistance Maximum distance before giving up
      */
     public GoalFollow(Entity target, int minDistance, int maxDistance) {
+        this(target, minDistance, maxDistance, false, null);
+    }
+
+    private GoalFollow(Entity target, int minDistance, int maxDistance, boolean frozen,
+                       @Nullable BlockPos frozenPos) {
         this.target = target;
         this.minDistance = minDistance;
         this.maxDistance = maxDistance;
         this.minDistanceSq = minDistance * minDistance;
         this.maxDistanceSq = maxDistance * maxDistance;
+        this.frozen = frozen;
+        this.frozenPos = frozenPos;
+    }
+
+    /**
+     * Freeze the target's current position. The entity is still available through
+     * {@link #getTarget()} for main-thread use, but no goal check reads it.
+     */
+    @Override
+    public GoalFollow snapshot() {
+        if (frozen) {
+            return this;
+        }
+        return new GoalFollow(target, minDistance, maxDistance, true, getTargetPosition());
     }
 
     @Override
     public boolean isAtGoal(int x, int y, int z) {
-        if (target == null || !target.isAlive()) {
+        BlockPos targetPos = getTargetPosition();
+        if (targetPos == null) {
             return true; // Goal satisfied if target is gone
         }
 
-        BlockPos targetPos = target.blockPosition();
         int dx = targetPos.getX() - x;
         int dy = targetPos.getY() - y;
         int dz = targetPos.getZ() - z;
@@ -55,11 +82,11 @@ public class GoalFollow implements Goal {
 
     @Override
     public double heuristic(int x, int y, int z) {
-        if (target == null || !target.isAlive()) {
+        BlockPos targetPos = getTargetPosition();
+        if (targetPos == null) {
             return 0;
         }
 
-        BlockPos targetPos = target.blockPosition();
         int dx = Math.abs(targetPos.getX() - x);
         int dy = Math.abs(targetPos.getY() - y);
         int dz = Math.abs(targetPos.getZ() - z);
@@ -71,20 +98,25 @@ public class GoalFollow implements Goal {
 
     @Override
     public boolean isReachable(BlockPos from) {
-        if (target == null || !target.isAlive()) {
+        BlockPos targetPos = getTargetPosition();
+        if (targetPos == null) {
             return false;
         }
 
         // Check if target is too far
-        double distSq = from.distSqr(target.blockPosition());
+        double distSq = from.distSqr(targetPos);
         return distSq <= maxDistanceSq;
     }
 
     /**
      * Get the current target position.
-     * @return Current BlockPos of target, or null if target is invalid
+     * @return Current BlockPos of target (frozen for snapshots), or null if target is invalid
      */
+    @Nullable
     public BlockPos getTargetPosition() {
+        if (frozen) {
+            return frozenPos;
+        }
         if (target == null || !target.isAlive()) {
             return null;
         }
@@ -98,10 +130,11 @@ public class GoalFollow implements Goal {
      * @return true if target has moved beyond threshold
      */
     public boolean hasTargetMoved(BlockPos lastKnownPos, double threshold) {
-        if (target == null || !target.isAlive() || lastKnownPos == null) {
+        BlockPos targetPos = getTargetPosition();
+        if (targetPos == null || lastKnownPos == null) {
             return true;
         }
-        return lastKnownPos.distSqr(target.blockPosition()) > threshold * threshold;
+        return lastKnownPos.distSqr(targetPos) > threshold * threshold;
     }
 
     public Entity getTarget() {
@@ -117,7 +150,12 @@ public class GoalFollow implements Goal {
     }
 
     public boolean isTargetValid() {
-        return target != null && target.isAlive();
+        return getTargetPosition() != null;
+    }
+
+    @Override
+    public BlockPos getTargetPos() {
+        return getTargetPosition();
     }
 
     @Override
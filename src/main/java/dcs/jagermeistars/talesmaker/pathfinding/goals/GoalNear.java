@@ -64,6 +64,11 @@ public class GoalNear implements Goal {
         return new BlockPos(x, y, z);
     }
 
+    @Override
+    public BlockPos getTargetPos() {
+        return getBlockPos();
+    }
+
     @Override
     public String toString() {
         return "GoalNear{" + x + ", " + y + ", " + z + " r=" + radius + "}";
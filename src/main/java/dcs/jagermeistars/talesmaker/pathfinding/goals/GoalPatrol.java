@@ -1,15 +1,25 @@
 package dcs.jagermeistars.talesmaker.pathfinding.goals;
 
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionStamps;
+import dcs.jagermeistars.talesmaker.pathfinding.path.SmoothPath;
 import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Goal for patrolling between waypoints.
  * Cycles through waypoints in order, optionally reversing or looping.
  * Supports sub-block precision with Vec3 coordinates.
+ *
+ * Legs walked once are kept with the route and reused on later laps until a block
+ * along them changes, so a looping patrol stops costing searches after its first lap.
  */
 public class GoalPatrol implements Goal {
 
@@ -19,6 +29,21 @@ public class GoalPatrol implements Goal {
     private boolean reversing;
     private final double tolerance;
 
+    // Smoothed legs, reused while no section they were found through changes
+    private final Map<LegKey, PatrolLeg> legs = new HashMap<>();
+
+    // Start cells this close to a waypoint (per axis, in blocks) begin a leg from it
+    private static final double SNAP_DISTANCE = 1.0;
+
+    /**
+     * Leg from one waypoint to another, for one entity size.
+     */
+    private record LegKey(int fromIndex, int toIndex, float width, float height) {
+    }
+
+    private record PatrolLeg(SmoothPath path, SectionStamps stamps) {
+    }
+
     /**
      * Create a patrol goal with Vec3 waypoints.
      * @param waypoints List of precise positions to patrol between
@@ -60,25 +85,20 @@ public class GoalPatrol implements Goal {
 
     @Override
     public boolean isAtGoal(int x, int y, int z) {
-        Vec3 current = getCurrentWaypoint();
-        double dx = Math.abs(current.x - (x + 0.5));
-        double dy = Math.abs(current.y - y);
-        double dz = Math.abs(current.z - (z + 0.5));
-
-        return dx <= tolerance && dy <= tolerance && dz <= tolerance;
+        return GoalWaypoint.isWithin(getCurrentWaypoint(), tolerance, x, y, z);
     }
 
     @Override
     public double heuristic(int x, int y, int z) {
-        Vec3 current = getCurrentWaypoint();
-        double dx = Math.abs(current.x - (x + 0.5));
-        double dy = Math.abs(current.y - y);
-        double dz = Math.abs(current.z - (z + 0.5));
-
-        double diagonal = Math.min(dx, dz);
-        double straight = dx + dz - 2 * diagonal;
+        return GoalWaypoint.estimate(getCurrentWaypoint(), x, y, z);
+    }
 
-        return diagonal * 1.414 + straight + dy * 1.5;
+    /**
+     * Freeze the current waypoint: the patrol may advance while a search for it runs.
+     */
+    @Override
+    public Goal snapshot() {
+        return new GoalWaypoint(getCurrentWaypoint(), tolerance);
     }
 
     /**
@@ -136,6 +156,93 @@ public class GoalPatrol implements Goal {
         return true;
     }
 
+    /**
+     * Get the cached leg to the current waypoint from the waypoint a start cell is at.
+     *
+     * @return the leg, or null if the start is at no other waypoint, there is no leg from it
+     *         or a block along it has changed
+     */
+    @Nullable
+    public SmoothPath getCachedLeg(BlockPos start, ResourceKey<Level> dimension, float width, float height) {
+        int fromIndex = snapToWaypoint(start, currentIndex);
+        if (fromIndex < 0) {
+            return null;
+        }
+        LegKey key = new LegKey(fromIndex, currentIndex, width, height);
+        PatrolLeg leg = legs.get(key);
+        if (leg == null) {
+            return null;
+        }
+        if (!leg.stamps().isCurrent(dimension)) {
+            legs.remove(key);
+            return null;
+        }
+        return leg.path();
+    }
+
+    /**
+     * Remember a complete leg to a waypoint, if it starts at another waypoint.
+     *
+     * @param stamps versions of the sections the leg was found through
+     */
+    public void cacheLeg(BlockPos start, int toIndex, float width, float height, SmoothPath path,
+                         SectionStamps stamps, ResourceKey<Level> dimension) {
+        int fromIndex = snapToWaypoint(start, toIndex);
+        if (fromIndex < 0 || !stamps.isCurrent(dimension)) {
+            // Started mid-route, or changed while it was being searched (or not stampable)
+            return;
+        }
+        if (legs.size() >= waypoints.size() * 4) {
+            legs.clear();
+        }
+        legs.put(new LegKey(fromIndex, toIndex, width, height), new PatrolLeg(path, stamps));
+    }
+
+    /**
+     * Get the waypoint nearest to a start cell among those it is within reach of, so that
+     * each lap's slightly different arrival cell finds the same leg.
+     *
+     * @param exclude the leg's target waypoint
+     * @return the waypoint index, or -1 if the cell is near none
+     */
+    private int snapToWaypoint(BlockPos start, int exclude) {
+        double reach = Math.max(tolerance, SNAP_DISTANCE);
+        int nearest = -1;
+        double nearestDist = Double.MAX_VALUE;
+        for (int i = 0; i < waypoints.size(); i++) {
+            if (i == exclude) {
+                continue;
+            }
+            Vec3 wp = waypoints.get(i);
+            double dx = Math.abs(wp.x - (start.getX() + 0.5));
+            double dy = Math.abs(wp.y - start.getY());
+            double dz = Math.abs(wp.z - (start.getZ() + 0.5));
+            if (dx > reach || dy > reach || dz > reach) {
+                continue;
+            }
+            double dist = dx * dx + dy * dy + dz * dz;
+            if (dist < nearestDist) {
+                nearest = i;
+                nearestDist = dist;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Drop the cached legs leading to a waypoint, e.g. after walking one failed.
+     */
+    public void forgetLegsTo(int index) {
+        legs.keySet().removeIf(key -> key.toIndex() == index);
+    }
+
+    /**
+     * Get the number of cached legs.
+     */
+    public int getCachedLegCount() {
+        return legs.size();
+    }
+
     /**
      * Reset patrol to the first waypoint.
      */
@@ -173,6 +280,11 @@ public class GoalPatrol implements Goal {
         return reversing;
     }
 
+    @Override
+    public BlockPos getTargetPos() {
+        return getCurrentWaypointBlockPos();
+    }
+
     @Override
     public String toString() {
         return "GoalPatrol{waypoint=" + (currentIndex + 1) + "/" + waypoints.size() +
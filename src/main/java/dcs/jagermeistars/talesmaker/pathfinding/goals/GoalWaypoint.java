@@ -0,0 +1,72 @@
+package dcs.jagermeistars.talesmaker.pathfinding.goals;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Goal to get within a tolerance of a precise position (per axis).
+ * What a patrol is heading for at one moment; immutable.
+ */
+public class GoalWaypoint implements Goal {
+
+    private final Vec3 waypoint;
+    private final double tolerance;
+
+    public GoalWaypoint(Vec3 waypoint, double tolerance) {
+        this.waypoint = waypoint;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public boolean isAtGoal(int x, int y, int z) {
+        return isWithin(waypoint, tolerance, x, y, z);
+    }
+
+    @Override
+    public double heuristic(int x, int y, int z) {
+        return estimate(waypoint, x, y, z);
+    }
+
+    /**
+     * Check if a cell's bottom center is within a tolerance of a waypoint on every axis.
+     */
+    static boolean isWithin(Vec3 waypoint, double tolerance, int x, int y, int z) {
+        double dx = Math.abs(waypoint.x - (x + 0.5));
+        double dy = Math.abs(waypoint.y - y);
+        double dz = Math.abs(waypoint.z - (z + 0.5));
+
+        return dx <= tolerance && dy <= tolerance && dz <= tolerance;
+    }
+
+    /**
+     * Octile estimate from a cell to a waypoint, with climbing weighted.
+     */
+    static double estimate(Vec3 waypoint, int x, int y, int z) {
+        double dx = Math.abs(waypoint.x - (x + 0.5));
+        double dy = Math.abs(waypoint.y - y);
+        double dz = Math.abs(waypoint.z - (z + 0.5));
+
+        double diagonal = Math.min(dx, dz);
+        double straight = dx + dz - 2 * diagonal;
+
+        return diagonal * 1.414 + straight + dy * 1.5;
+    }
+
+    public Vec3 getWaypoint() {
+        return waypoint;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    @Override
+    public BlockPos getTargetPos() {
+        return BlockPos.containing(waypoint);
+    }
+
+    @Override
+    public String toString() {
+        return "GoalWaypoint{" + waypoint + " tolerance=" + tolerance + "}";
+    }
+}
@@ -0,0 +1,13 @@
+package dcs.jagermeistars.talesmaker.pathfinding.hierarchy;
+
+/**
+ * Edge of the section graph: from an entry cell of a section to a standable cell just
+ * across one of its faces (a portal into the neighbouring section).
+ *
+ * @param x    portal cell X
+ * @param y    portal cell Y
+ * @param z    portal cell Z
+ * @param cost fine movement cost from the entry cell to the portal cell
+ */
+public record PortalEdge(int x, int y, int z, float cost) {
+}
@@ -0,0 +1,188 @@
+package dcs.jagermeistars.talesmaker.pathfinding.hierarchy;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.AbstractPathfinder;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.BinaryHeapOpenSet;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.NodeArena;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.SearchToken;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.GoalBlock;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import dcs.jagermeistars.talesmaker.pathfinding.path.RouteLegPath;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Long-range planner: A* over the {@link SectionGraph}, then fine A* for the first leg only.
+ *
+ * The coarse route runs from the start to a portal within fine-search range of the goal.
+ * The returned path only covers the route up to the farthest waypoint within LEG_RANGE,
+ * so the fine search stays small however long the trip is. Each later leg is planned the
+ * same way from wherever the NPC ends up, reusing the cached section graph.
+ */
+public final class RoutePlanner {
+    /**
+     * Goals closer than this are left to the plain fine search.
+     */
+    public static final int FINE_RANGE = 24;
+
+    // Farthest route waypoint (blocks from the start) a leg may aim for
+    private static final int LEG_RANGE = 24;
+
+    // Coarse search limits
+    private static final int MAX_EXPANSIONS = 4096;
+    private static final long ROUTE_TIMEOUT_MS = 500;
+    private static final int TIME_CHECK_INTERVAL = 16;
+
+    // Coarse search nodes, separate from the fine search arena used by explorations
+    private static final ThreadLocal<NodeArena> ROUTE_ARENAS = ThreadLocal.withInitial(NodeArena::new);
+
+    private RoutePlanner() {
+        // Utility class
+    }
+
+    /**
+     * Check if a request is far enough to go through the section graph.
+     */
+    public static boolean shouldRoute(Goal goal, BlockPos start) {
+        return goal.heuristic(start) > FINE_RANGE;
+    }
+
+    /**
+     * Plan a long trip and return the fine path of its first leg.
+     *
+     * @return the leg (a {@link RouteLegPath}), or null if the caller should run a plain search
+     *         (no route found, the goal is within reach of the first leg anyway, or the first
+     *         waypoint is out of leg range)
+     */
+    @Nullable
+    public static IPath planLeg(Goal goal, BlockPos start, WorldContext context, SectionGraph graph,
+                                SearchToken token, int maxNodes, long maxTimeMs) {
+        List<BlockPos> route = planRoute(goal, start, context, graph, token);
+        if (route == null || route.size() < 2 || token.isCanceled()) {
+            return null;
+        }
+
+        BlockPos last = route.get(route.size() - 1);
+        if (withinLegRange(start, last)) {
+            // The end of the route is close - the plain search reaches the real goal
+            return null;
+        }
+
+        BlockPos legTarget = route.get(1);
+        if (!withinLegRange(start, legTarget)) {
+            // Even the first waypoint is out of range - no leg could be searched to it cheaply
+            return null;
+        }
+        for (int i = route.size() - 1; i > 1; i--) {
+            if (withinLegRange(start, route.get(i))) {
+                legTarget = route.get(i);
+                break;
+            }
+        }
+
+        AbstractPathfinder pathfinder = new AbstractPathfinder(new GoalBlock(legTarget), context);
+        pathfinder.setToken(token);
+        IPath leg = pathfinder.calculate(start, maxNodes, maxTimeMs);
+        if (leg == null || leg.length() < 2) {
+            return null;
+        }
+
+        TalesMaker.LOGGER.debug("[Pathfinding] Route leg: {} waypoints, leg to {} ({} blocks)",
+                route.size(), legTarget, leg.length());
+        return new RouteLegPath(leg.positions(), goal, leg.getTotalCost());
+    }
+
+    /**
+     * A* over section portals.
+     *
+     * @return route cells from the start, or null if the coarse search made no progress
+     */
+    @Nullable
+    static List<BlockPos> planRoute(Goal goal, BlockPos start, WorldContext context, SectionGraph graph,
+                                    SearchToken token) {
+        NodeArena arena = ROUTE_ARENAS.get();
+        BinaryHeapOpenSet openSet = arena.getOpenSet();
+        arena.clear();
+        Long2ObjectMap<SectionNode> localNodes = new Long2ObjectOpenHashMap<>();
+
+        long startTime = System.nanoTime();
+        long fetchWaitAtStart = context.getFetchWaitNanos();
+        long maxTimeNanos = ROUTE_TIMEOUT_MS * 1_000_000L;
+
+        int startNode = arena.getOrCreate(start.getX(), start.getY(), start.getZ());
+        arena.setGCost(startNode, 0);
+        arena.setHCost(startNode, (float) goal.heuristic(start));
+        openSet.insert(startNode);
+
+        int bestNode = startNode;
+        float bestHeuristic = arena.getHCost(startNode);
+        int expansions = 0;
+
+        while (!openSet.isEmpty() && expansions < MAX_EXPANSIONS) {
+            if ((expansions & (TIME_CHECK_INTERVAL - 1)) == 0) {
+                if (token.isCanceled()) {
+                    return null;
+                }
+                if (System.nanoTime() - startTime - (context.getFetchWaitNanos() - fetchWaitAtStart) > maxTimeNanos) {
+                    break;
+                }
+            }
+
+            int current = openSet.poll();
+            expansions++;
+            int x = arena.getX(current);
+            int y = arena.getY(current);
+            int z = arena.getZ(current);
+
+            float h = arena.getHCost(current);
+            if (goal.isAtGoal(x, y, z) || h <= FINE_RANGE) {
+                return reconstruct(arena, current);
+            }
+            if (h < bestHeuristic) {
+                bestHeuristic = h;
+                bestNode = current;
+            }
+
+            for (PortalEdge edge : graph.edgesFrom(context, x, y, z, localNodes)) {
+                float newG = arena.getGCost(current) + edge.cost();
+                int neighbor = arena.getOrCreate(edge.x(), edge.y(), edge.z());
+                if (newG < arena.getGCost(neighbor)) {
+                    arena.setGCost(neighbor, newG);
+                    arena.setHCost(neighbor, (float) goal.heuristic(edge.x(), edge.y(), edge.z()));
+                    arena.setParent(neighbor, current);
+                    if (arena.isInHeap(neighbor)) {
+                        openSet.update(neighbor);
+                    } else {
+                        openSet.insert(neighbor);
+                    }
+                }
+            }
+        }
+
+        // Out of budget or no way through - head for the portal closest to the goal
+        return bestNode != startNode ? reconstruct(arena, bestNode) : null;
+    }
+
+    private static List<BlockPos> reconstruct(NodeArena arena, int endNode) {
+        List<BlockPos> route = new ArrayList<>();
+        for (int node = endNode; node != NodeArena.NONE; node = arena.getParent(node)) {
+            route.add(arena.getPos(node));
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    private static boolean withinLegRange(BlockPos from, BlockPos to) {
+        return Math.abs(to.getX() - from.getX()) <= LEG_RANGE
+                && Math.abs(to.getY() - from.getY()) <= LEG_RANGE
+                && Math.abs(to.getZ() - from.getZ()) <= LEG_RANGE;
+    }
+}
@@ -0,0 +1,198 @@
+package dcs.jagermeistars.talesmaker.pathfinding.hierarchy;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.AbstractPathfinder;
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionSnapshot;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import it.unimi.dsi.fastutil.longs.Long2FloatMap;
+import it.unimi.dsi.fastutil.longs.Long2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.LevelEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Abstract graph over 16x16x16 sections for long-range planning.
+ * Nodes are cells where a section is entered; edges lead to portal cells just across the
+ * section's faces, with the exact fine movement cost. Edges are discovered on demand by a
+ * fine search confined to the section and cached until a block in the neighbourhood changes.
+ *
+ * One graph per dimension and movement profile, shared by all path requests. Thread-safe.
+ */
+@EventBusSubscriber(modid = TalesMaker.MODID)
+public final class SectionGraph {
+    // Portals kept per neighbouring section, and the minimum spacing between them
+    private static final int MAX_PORTALS_PER_NEIGHBOR = 4;
+    private static final int PORTAL_SPACING = 4;
+
+    // Limits for one in-section exploration
+    private static final int EXPLORE_MAX_NODES = SectionSnapshot.VOLUME;
+    private static final long EXPLORE_TIMEOUT_MS = 20;
+
+    // Sections kept per graph before it is flushed
+    private static final int MAX_NODES = 16384;
+
+    private static final ConcurrentHashMap<Profile, SectionGraph> GRAPHS = new ConcurrentHashMap<>();
+
+    // Goal that is never reached, so an exploration floods the whole section
+    private static final Goal EXPLORE = new Goal() {
+        @Override
+        public boolean isAtGoal(int x, int y, int z) {
+            return false;
+        }
+
+        @Override
+        public double heuristic(int x, int y, int z) {
+            return 0;
+        }
+    };
+
+    /**
+     * Config values that change which moves are possible.
+     */
+    private record Profile(ResourceKey<Level> dimension, float width, float height, int maxFall, int maxJump,
+                           boolean canSwim, boolean canClimb, boolean canOpenDoors, boolean canParkour) {
+    }
+
+    private final ResourceKey<Level> dimension;
+    private final ConcurrentHashMap<Long, SectionNode> nodes = new ConcurrentHashMap<>();
+
+    private SectionGraph(ResourceKey<Level> dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * Get the shared graph for a dimension and movement config.
+     */
+    public static SectionGraph forConfig(ResourceKey<Level> dimension, PathingConfig config) {
+        Profile profile = new Profile(dimension, config.getEntityWidth(), config.getEntityHeight(),
+                config.getMaxFallDistance(), config.getMaxJumpHeight(),
+                config.canSwim(), config.canClimb(), config.canOpenDoors(), config.canParkour());
+        return GRAPHS.computeIfAbsent(profile, p -> new SectionGraph(dimension));
+    }
+
+    /**
+     * Get the portal edges leaving the section that contains a cell, entering at that cell.
+     *
+     * @param context    world data for the search (its config must match this graph)
+     * @param localNodes nodes built during the current search that could not be cached
+     */
+    PortalEdge[] edgesFrom(WorldContext context, int x, int y, int z, Long2ObjectMap<SectionNode> localNodes) {
+        int sx = x >> 4;
+        int sy = y >> 4;
+        int sz = z >> 4;
+        long key = SectionPos.asLong(sx, sy, sz);
+
+        SectionNode node = localNodes.get(key);
+        if (node == null) {
+            node = nodes.get(key);
+            if (node != null && !node.isCurrent(dimension)) {
+                nodes.remove(key, node);
+                node = null;
+            }
+            if (node == null) {
+                node = SectionNode.create(context.getSnapshot(), sx, sy, sz);
+                if (node.isCacheable()) {
+                    if (nodes.size() >= MAX_NODES) {
+                        nodes.clear();
+                    }
+                    nodes.put(key, node);
+                }
+            }
+            localNodes.put(key, node);
+        }
+
+        PortalEdge[] edges = node.getEdges(x, y, z);
+        if (edges == null) {
+            edges = explore(context, x, y, z);
+            node.putEdges(x, y, z, edges);
+        }
+        return edges;
+    }
+
+    /**
+     * Flood the section from an entry cell and collect the cheapest portals per neighbour.
+     */
+    private static PortalEdge[] explore(WorldContext context, int x, int y, int z) {
+        int minX = x & ~15;
+        int minY = y & ~15;
+        int minZ = z & ~15;
+
+        Long2FloatOpenHashMap landings = new Long2FloatOpenHashMap();
+        landings.defaultReturnValue(Float.POSITIVE_INFINITY);
+
+        AbstractPathfinder explorer = new AbstractPathfinder(EXPLORE, context);
+        explorer.setBounds(minX, minY, minZ, minX + 15, minY + 15, minZ + 15, (from, toX, toY, toZ, cost) -> {
+            long cell = BlockPos.asLong(toX, toY, toZ);
+            if (cost < landings.get(cell)) {
+                landings.put(cell, cost);
+            }
+        });
+        explorer.calculate(new BlockPos(x, y, z), EXPLORE_MAX_NODES, EXPLORE_TIMEOUT_MS);
+
+        return selectPortals(landings);
+    }
+
+    /**
+     * Thin out landing cells: per neighbouring section keep the cheapest few, spaced apart.
+     */
+    private static PortalEdge[] selectPortals(Long2FloatOpenHashMap landings) {
+        List<PortalEdge> candidates = new ArrayList<>(landings.size());
+        for (Long2FloatMap.Entry entry : landings.long2FloatEntrySet()) {
+            long cell = entry.getLongKey();
+            candidates.add(new PortalEdge(BlockPos.getX(cell), BlockPos.getY(cell), BlockPos.getZ(cell),
+                    entry.getFloatValue()));
+        }
+        candidates.sort((a, b) -> Float.compare(a.cost(), b.cost()));
+
+        List<PortalEdge> selected = new ArrayList<>();
+        for (PortalEdge candidate : candidates) {
+            int sameNeighbor = 0;
+            boolean tooClose = false;
+            for (PortalEdge chosen : selected) {
+                if (!sameSection(chosen, candidate)) {
+                    continue;
+                }
+                sameNeighbor++;
+                int distance = Math.max(Math.abs(chosen.x() - candidate.x()),
+                        Math.max(Math.abs(chosen.y() - candidate.y()), Math.abs(chosen.z() - candidate.z())));
+                if (distance < PORTAL_SPACING) {
+                    tooClose = true;
+                    break;
+                }
+            }
+            if (!tooClose && sameNeighbor < MAX_PORTALS_PER_NEIGHBOR) {
+                selected.add(candidate);
+            }
+        }
+        return selected.toArray(new PortalEdge[0]);
+    }
+
+    private static boolean sameSection(PortalEdge a, PortalEdge b) {
+        return (a.x() >> 4) == (b.x() >> 4) && (a.y() >> 4) == (b.y() >> 4) && (a.z() >> 4) == (b.z() >> 4);
+    }
+
+    /**
+     * Get the number of cached sections.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level && !level.isClientSide()) {
+            GRAPHS.keySet().removeIf(profile -> profile.dimension().equals(level.dimension()));
+        }
+    }
+}
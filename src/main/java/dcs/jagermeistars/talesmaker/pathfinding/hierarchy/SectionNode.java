@@ -0,0 +1,87 @@
+package dcs.jagermeistars.talesmaker.pathfinding.hierarchy;
+
+import dcs.jagermeistars.talesmaker.pathfinding.context.RegionSnapshot;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionSnapshot;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionVersions;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Portal edges of one 16x16x16 section, keyed by the cell the section is entered at.
+ * Moves look at ground, headroom and landing cells in the surrounding sections too, so a
+ * node records the versions of its whole 3x3x3 neighbourhood and is stale once any changes.
+ */
+final class SectionNode {
+    // Entry cells remembered per section (portals from neighbours plus a few search starts)
+    private static final int MAX_ENTRIES = 64;
+
+    private final int sectionX, sectionY, sectionZ;
+    // Neighbourhood section keys and their versions when the node was built
+    private final long[] keys;
+    private final long[] versions;
+    private final boolean cacheable;
+    private final ConcurrentHashMap<Long, PortalEdge[]> edges = new ConcurrentHashMap<>();
+
+    private SectionNode(int sectionX, int sectionY, int sectionZ, long[] keys, long[] versions,
+                        boolean cacheable) {
+        this.sectionX = sectionX;
+        this.sectionY = sectionY;
+        this.sectionZ = sectionZ;
+        this.keys = keys;
+        this.versions = versions;
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Create a node stamped with the versions its region copy was taken at, or the current
+     * versions for sections the copy hasn't read yet.
+     */
+    static SectionNode create(RegionSnapshot region, int sectionX, int sectionY, int sectionZ) {
+        long[] keys = new long[27];
+        long[] versions = new long[27];
+        boolean cacheable = true;
+        int i = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    // Never waits for a copy: a cold graph would otherwise fetch 27 sections per node
+                    long version = region.peekSectionVersion(sectionX + dx, sectionY + dy, sectionZ + dz);
+                    keys[i] = SectionPos.asLong(sectionX + dx, sectionY + dy, sectionZ + dz);
+                    versions[i++] = version;
+                    if (version == SectionSnapshot.NO_VERSION) {
+                        // Partly outside the captured box or unloaded - only valid for this search
+                        cacheable = false;
+                    }
+                }
+            }
+        }
+        return new SectionNode(sectionX, sectionY, sectionZ, keys, versions, cacheable);
+    }
+
+    /**
+     * Check if no section of the neighbourhood changed since this node was built.
+     */
+    boolean isCurrent(ResourceKey<Level> dimension) {
+        return SectionVersions.forDimension(dimension).matches(keys, versions);
+    }
+
+    boolean isCacheable() {
+        return cacheable;
+    }
+
+    @Nullable
+    PortalEdge[] getEdges(int x, int y, int z) {
+        return edges.get(BlockPos.asLong(x, y, z));
+    }
+
+    void putEdges(int x, int y, int z, PortalEdge[] portalEdges) {
+        if (edges.size() < MAX_ENTRIES) {
+            edges.put(BlockPos.asLong(x, y, z), portalEdges);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dcs.jagermeistars.talesmaker.pathfinding.landmark;
+
+import dcs.jagermeistars.talesmaker.pathfinding.goals.GoalBlock;
+import net.minecraft.core.BlockPos;
+
+import java.util.List;
+
+/**
+ * A block goal whose estimate also takes landmark bounds into account.
+ *
+ * For a landmark L, the triangle inequality bounds the cost from n to the goal g from below
+ * twice: d(n, g) >= d(n, L) - d(g, L) and d(n, g) >= d(L, g) - d(L, n). Both hold for the
+ * one-way moves too, so the largest of them and the octile estimate is still admissible -
+ * and behind a wall, far tighter than the straight line.
+ */
+final class LandmarkGoal extends GoalBlock {
+    private final LandmarkTable[] tables;
+    // Per table: cost from the goal to the landmark, and from the landmark to the goal
+    private final float[] goalTo;
+    private final float[] goalFrom;
+
+    LandmarkGoal(BlockPos pos, List<LandmarkTable> tables) {
+        super(pos);
+        this.tables = tables.toArray(new LandmarkTable[0]);
+        this.goalTo = new float[this.tables.length];
+        this.goalFrom = new float[this.tables.length];
+        for (int i = 0; i < this.tables.length; i++) {
+            goalTo[i] = this.tables[i].costTo(pos.getX(), pos.getY(), pos.getZ());
+            goalFrom[i] = this.tables[i].costFrom(pos.getX(), pos.getY(), pos.getZ());
+        }
+    }
+
+    @Override
+    public double heuristic(int x, int y, int z) {
+        double estimate = super.heuristic(x, y, z);
+        for (int i = 0; i < tables.length; i++) {
+            // NaN (cell not measured) never wins a comparison, so it drops out on its own
+            float to = tables[i].costTo(x, y, z) - goalTo[i];
+            if (to > estimate) {
+                estimate = to;
+            }
+            float from = goalFrom[i] - tables[i].costFrom(x, y, z);
+            if (from > estimate) {
+                estimate = from;
+            }
+        }
+        return estimate;
+    }
+
+    @Override
+    public String toString() {
+        return "LandmarkGoal{" + getX() + ", " + getY() + ", " + getZ() + " landmarks=" + tables.length + "}";
+    }
+}
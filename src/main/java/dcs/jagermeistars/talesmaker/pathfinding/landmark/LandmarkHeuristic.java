@@ -0,0 +1,222 @@
+package dcs.jagermeistars.talesmaker.pathfinding.landmark;
+
+import dcs.jagermeistars.talesmaker.TalesMaker;
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import dcs.jagermeistars.talesmaker.pathfinding.goals.GoalBlock;
+import dcs.jagermeistars.talesmaker.pathfinding.path.IPath;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.LevelEvent;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Landmark (ALT) estimates for trips to a single block, per dimension and movement profile.
+ *
+ * The octile estimate ignores walls, so indoors A* floods whole floors before it finds the
+ * door. Landmarks are learned where that happened: when a found path cost far more than the
+ * estimate promised, its goal block becomes a landmark and the exact costs around it are
+ * measured once. Later trips to that area take the triangle-inequality bounds from the
+ * landmarks near their goal (see {@link LandmarkGoal}), which follow the corridors.
+ *
+ * A landmark is dropped once a section its costs (or a neighbour of its cells) were read
+ * from changes, or as the least recently used one when the profile has too many; a later
+ * detour there learns it again. Thread-safe.
+ */
+@EventBusSubscriber(modid = TalesMaker.MODID)
+public final class LandmarkHeuristic {
+    // Landmarks are grouped by the column region they stand in
+    private static final int REGION_SHIFT = 6;
+    private static final int MAX_PER_REGION = 6;
+
+    // Landmarks kept per dimension and profile; the least recently used goes first
+    private static final int MAX_LANDMARKS = 24;
+
+    // Landmarks a single goal's estimate takes bounds from
+    private static final int MAX_ACTIVE = 4;
+
+    // Learning: a path costing this many times its estimate makes its goal a landmark,
+    // unless a landmark is this close already (per axis)
+    private static final double DETOUR_FACTOR = 2.0;
+    private static final double MIN_ESTIMATE = 8.0;
+    private static final int MIN_SPACING = 8;
+
+    private static final ConcurrentHashMap<Profile, LandmarkHeuristic> HEURISTICS = new ConcurrentHashMap<>();
+
+    /**
+     * Dimension plus the config values that change which moves are possible.
+     */
+    private record Profile(ResourceKey<Level> dimension, float width, float height, int maxFall, int maxJump,
+                           boolean canSwim, boolean canClimb, boolean canOpenDoors, boolean canParkour) {
+    }
+
+    private final ResourceKey<Level> dimension;
+    private final Long2ObjectMap<List<LandmarkTable>> regions = new Long2ObjectOpenHashMap<>();
+    private int landmarkCount;
+    private long useClock;
+
+    private LandmarkHeuristic(ResourceKey<Level> dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * Get the shared landmarks for a dimension and movement config.
+     */
+    public static LandmarkHeuristic forConfig(ResourceKey<Level> dimension, PathingConfig config) {
+        Profile profile = new Profile(dimension, config.getEntityWidth(), config.getEntityHeight(),
+                config.getMaxFallDistance(), config.getMaxJumpHeight(),
+                config.canSwim(), config.canClimb(), config.canOpenDoors(), config.canParkour());
+        return HEURISTICS.computeIfAbsent(profile, p -> new LandmarkHeuristic(dimension));
+    }
+
+    /**
+     * Get a goal with the same target whose estimate uses the landmarks around it.
+     *
+     * @return the landmark goal, or the goal itself if it is not a single block or no
+     *         current landmark measured it
+     */
+    public Goal wrap(Goal goal) {
+        if (!(goal instanceof GoalBlock block) || goal instanceof LandmarkGoal) {
+            return goal;
+        }
+        BlockPos pos = block.getBlockPos();
+        List<LandmarkTable> tables = new ArrayList<>();
+        synchronized (this) {
+            int regionX = pos.getX() >> REGION_SHIFT;
+            int regionZ = pos.getZ() >> REGION_SHIFT;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    List<LandmarkTable> region = regions.get(ChunkPos.asLong(regionX + dx, regionZ + dz));
+                    if (region == null) {
+                        continue;
+                    }
+                    removeStale(region);
+                    for (LandmarkTable table : region) {
+                        if (table.covers(pos)) {
+                            tables.add(table);
+                        }
+                    }
+                }
+            }
+        }
+        if (tables.isEmpty()) {
+            return goal;
+        }
+        // The nearest landmarks bound the last stretch best
+        tables.sort(Comparator.comparingDouble(table -> table.getLandmark().distSqr(pos)));
+        List<LandmarkTable> active = tables.subList(0, Math.min(MAX_ACTIVE, tables.size()));
+        synchronized (this) {
+            long clock = ++useClock;
+            for (LandmarkTable table : active) {
+                table.touch(clock);
+            }
+        }
+        return new LandmarkGoal(pos, active);
+    }
+
+    /**
+     * Make a goal a landmark if the path found to it shows its estimate was far too low.
+     * Runs the landmark's measurement on the calling thread.
+     *
+     * @param goal    the goal the path was searched for, as returned by {@link #wrap}
+     * @param start   search start
+     * @param path    the path found, or null
+     * @param context world data captured for the request
+     */
+    public void learn(Goal goal, BlockPos start, @Nullable IPath path, WorldContext context) {
+        if (!(goal instanceof GoalBlock block) || path == null || !path.isComplete()) {
+            return;
+        }
+        double estimate = goal.heuristic(start);
+        if (estimate < MIN_ESTIMATE || path.getTotalCost() < estimate * DETOUR_FACTOR) {
+            return;
+        }
+        BlockPos pos = block.getBlockPos();
+        if (!canAdd(pos)) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        LandmarkTable table = LandmarkTable.build(pos, context);
+        synchronized (this) {
+            // Another search may have learned a landmark here meanwhile
+            if (!canAdd(pos)) {
+                return;
+            }
+            if (landmarkCount >= MAX_LANDMARKS) {
+                evictLeastRecentlyUsed();
+            }
+            table.touch(++useClock);
+            regions.computeIfAbsent(regionKey(pos), k -> new ArrayList<>()).add(table);
+            landmarkCount++;
+        }
+        TalesMaker.LOGGER.debug("[Pathfinding] Landmark at {} (path cost {} vs estimate {}): {} cells in {}ms",
+                pos, path.getTotalCost(), estimate, table.size(), (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    private synchronized boolean canAdd(BlockPos pos) {
+        List<LandmarkTable> region = regions.get(regionKey(pos));
+        if (region == null) {
+            return true;
+        }
+        removeStale(region);
+        if (region.size() >= MAX_PER_REGION) {
+            return false;
+        }
+        for (LandmarkTable table : region) {
+            BlockPos landmark = table.getLandmark();
+            if (Math.abs(landmark.getX() - pos.getX()) <= MIN_SPACING
+                    && Math.abs(landmark.getY() - pos.getY()) <= MIN_SPACING
+                    && Math.abs(landmark.getZ() - pos.getZ()) <= MIN_SPACING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void removeStale(List<LandmarkTable> region) {
+        int before = region.size();
+        region.removeIf(table -> !table.isCurrent(dimension));
+        landmarkCount -= before - region.size();
+    }
+
+    private synchronized void evictLeastRecentlyUsed() {
+        List<LandmarkTable> oldestRegion = null;
+        LandmarkTable oldest = null;
+        for (List<LandmarkTable> region : regions.values()) {
+            for (LandmarkTable table : region) {
+                if (oldest == null || table.getLastUsed() < oldest.getLastUsed()) {
+                    oldest = table;
+                    oldestRegion = region;
+                }
+            }
+        }
+        if (oldestRegion != null) {
+            oldestRegion.remove(oldest);
+            landmarkCount--;
+        }
+    }
+
+    private static long regionKey(BlockPos pos) {
+        return ChunkPos.asLong(pos.getX() >> REGION_SHIFT, pos.getZ() >> REGION_SHIFT);
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level && !level.isClientSide()) {
+            HEURISTICS.keySet().removeIf(profile -> profile.dimension().equals(level.dimension()));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dcs.jagermeistars.talesmaker.pathfinding.landmark;
+
+import dcs.jagermeistars.talesmaker.pathfinding.calc.BinaryHeapOpenSet;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.MoveGenerator;
+import dcs.jagermeistars.talesmaker.pathfinding.calc.NodeArena;
+import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
+import dcs.jagermeistars.talesmaker.pathfinding.context.RegionSnapshot;
+import dcs.jagermeistars.talesmaker.pathfinding.context.SectionStamps;
+import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
+import it.unimi.dsi.fastutil.longs.Long2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+/**
+ * Exact move costs between one landmark cell and the cells around it, in both directions:
+ * Dijkstra over successor moves for the cost from the landmark, over predecessor moves for
+ * the cost to it (falls and parkour are one-way, so the two differ).
+ *
+ * Only settled cells are kept - a cell still queued when the build stops has an upper bound,
+ * not its cost, and would make the estimate overshoot. For the same reason a build stops at
+ * the first cell whose moves would read past the world copy: every cell settled before it is
+ * cheaper than any way around through the unread world.
+ *
+ * Immutable once built; read by several search threads at once.
+ */
+final class LandmarkTable {
+    // Build limits, per direction
+    private static final int MAX_NODES = 32768;
+    private static final long TIMEOUT_MS = 50;
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    private final BlockPos landmark;
+    // Settled cells (packed positions) to costs; NaN for cells not measured
+    private final Long2FloatOpenHashMap from;
+    private final Long2FloatOpenHashMap to;
+    private final SectionStamps stamps;
+
+    // Use clock value of the last search that took bounds from this landmark
+    private volatile long lastUsed;
+
+    private LandmarkTable(BlockPos landmark, Long2FloatOpenHashMap from, Long2FloatOpenHashMap to,
+                          SectionStamps stamps) {
+        this.landmark = landmark;
+        this.from = from;
+        this.to = to;
+        this.stamps = stamps;
+    }
+
+    /**
+     * Measure the costs around a standable landmark cell.
+     */
+    static LandmarkTable build(BlockPos landmark, WorldContext context) {
+        PathingConfig config = context.getConfig();
+        // Blocks a move from or into a cell may read around it
+        int horizontal = MoveGenerator.horizontalReach(config);
+        int vertical = MoveGenerator.verticalReach(config);
+
+        MoveGenerator moves = new MoveGenerator(context);
+        Long2FloatOpenHashMap from = explore(landmark, context, moves, true, horizontal, vertical);
+        Long2FloatOpenHashMap to = explore(landmark, context, moves, false, horizontal, vertical);
+
+        // Remember every section the costs were read from, neighbours of the cells included
+        LongOpenHashSet cells = new LongOpenHashSet(from.keySet());
+        cells.addAll(to.keySet());
+        SectionStamps stamps = SectionStamps.around(context.getSnapshot(), cells, horizontal, vertical, vertical);
+        return new LandmarkTable(landmark, from, to, stamps);
+    }
+
+    private static Long2FloatOpenHashMap explore(BlockPos root, WorldContext context, MoveGenerator moves,
+                                                 boolean forward, int horizontal, int vertical) {
+        NodeArena arena = new NodeArena();
+        BinaryHeapOpenSet openSet = arena.getOpenSet();
+        RegionSnapshot region = context.getSnapshot();
+        Long2FloatOpenHashMap settled = new Long2FloatOpenHashMap();
+        settled.defaultReturnValue(Float.NaN);
+
+        int rootNode = arena.getOrCreate(root.getX(), root.getY(), root.getZ());
+        arena.setGCost(rootNode, 0);
+        openSet.insert(rootNode);
+
+        long startTime = System.nanoTime();
+        long fetchWaitAtStart = context.getFetchWaitNanos();
+        long maxTimeNanos = TIMEOUT_MS * 1_000_000L;
+        while (!openSet.isEmpty() && settled.size() < MAX_NODES) {
+            if ((settled.size() & (TIME_CHECK_INTERVAL - 1)) == 0
+                    && System.nanoTime() - startTime - (context.getFetchWaitNanos() - fetchWaitAtStart)
+                            > maxTimeNanos) {
+                break;
+            }
+
+            int current = openSet.poll();
+            int cx = arena.getX(current);
+            int cy = arena.getY(current);
+            int cz = arena.getZ(current);
+            if (cx - horizontal < region.getMinX() || cx + horizontal > region.getMaxX()
+                    || cz - horizontal < region.getMinZ() || cz + horizontal > region.getMaxZ()
+                    || cy - vertical < region.getMinY() || cy + vertical > region.getMaxY()) {
+                break;
+            }
+            float g = arena.getGCost(current);
+            settled.put(BlockPos.asLong(cx, cy, cz), g);
+            MoveGenerator.MoveSink relax = (x, y, z, cost) -> {
+                float newG = g + (float) cost;
+                int node = arena.getOrCreate(x, y, z);
+                if (newG < arena.getGCost(node)) {
+                    arena.setGCost(node, newG);
+                    if (arena.isInHeap(node)) {
+                        openSet.update(node);
+                    } else {
+                        openSet.insert(node);
+                    }
+                }
+            };
+            if (forward) {
+                moves.successors(cx, cy, cz, relax);
+            } else {
+                moves.predecessors(cx, cy, cz, relax);
+            }
+        }
+        // Only the settled costs are kept; the arena is dropped
+        settled.trim();
+        return settled;
+    }
+
+    /**
+     * Get the cost of walking from the landmark to a cell, or NaN if it wasn't measured.
+     */
+    float costFrom(int x, int y, int z) {
+        return from.get(BlockPos.asLong(x, y, z));
+    }
+
+    /**
+     * Get the cost of walking from a cell to the landmark, or NaN if it wasn't measured.
+     */
+    float costTo(int x, int y, int z) {
+        return to.get(BlockPos.asLong(x, y, z));
+    }
+
+    /**
+     * Check if both costs are known for a cell.
+     */
+    boolean covers(BlockPos pos) {
+        return !Float.isNaN(costFrom(pos.getX(), pos.getY(), pos.getZ()))
+                && !Float.isNaN(costTo(pos.getX(), pos.getY(), pos.getZ()));
+    }
+
+    /**
+     * Check if no section the costs were read from has changed.
+     */
+    boolean isCurrent(ResourceKey<Level> dimension) {
+        return stamps.isCurrent(dimension);
+    }
+
+    BlockPos getLandmark() {
+        return landmark;
+    }
+
+    /**
+     * Record that a search took bounds from this landmark.
+     */
+    void touch(long clock) {
+        lastUsed = clock;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Get the number of cells measured (both directions).
+     */
+    int size() {
+        return from.size() + to.size();
+    }
+}
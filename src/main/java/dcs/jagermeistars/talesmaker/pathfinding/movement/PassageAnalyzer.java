@@ -18,6 +18,11 @@ public final class PassageAnalyzer {
      */
     public static final double DOOR_PASSAGE_WIDTH = 0.7;
 
+    /**
+     * Blocks scanned to each side of a position for its passage walls.
+     */
+    public static final int MAX_SCAN_DISTANCE = 5;
+
     private PassageAnalyzer() {
         // Utility class - no instantiation
     }
@@ -40,7 +45,7 @@ public final class PassageAnalyzer {
         int width = 1; // Start with the current block
 
         // Check in positive direction (max 5 blocks)
-        for (int i = 1; i <= 5; i++) {
+        for (int i = 1; i <= MAX_SCAN_DISTANCE; i++) {
             BlockPos checkPos = offsetByAxis(pos, axis, i);
             if (MovementHelper.hasVerticalClearance(ctx, checkPos, entityHeight)) {
                 width++;
@@ -50,7 +55,7 @@ public final class PassageAnalyzer {
         }
 
         // Check in negative direction (max 5 blocks)
-        for (int i = 1; i <= 5; i++) {
+        for (int i = 1; i <= MAX_SCAN_DISTANCE; i++) {
             BlockPos checkPos = offsetByAxis(pos, axis, -i);
             if (MovementHelper.hasVerticalClearance(ctx, checkPos, entityHeight)) {
                 width++;
@@ -131,7 +136,7 @@ public final class PassageAnalyzer {
         int maxOffset = 0;  // Last passable block in positive direction
 
         // Check in negative direction - find the wall
-        for (int i = -1; i >= -5; i--) {
+        for (int i = -1; i >= -MAX_SCAN_DISTANCE; i--) {
             BlockPos checkPos = offsetByAxis(pos, axis, i);
             if (MovementHelper.hasVerticalClearance(ctx, checkPos, entityHeight)) {
                 minOffset = i;
@@ -141,7 +146,7 @@ public final class PassageAnalyzer {
         }
 
         // Check in positive direction - find the wall
-        for (int i = 1; i <= 5; i++) {
+        for (int i = 1; i <= MAX_SCAN_DISTANCE; i++) {
             BlockPos checkPos = offsetByAxis(pos, axis, i);
             if (MovementHelper.hasVerticalClearance(ctx, checkPos, entityHeight)) {
                 maxOffset = i;
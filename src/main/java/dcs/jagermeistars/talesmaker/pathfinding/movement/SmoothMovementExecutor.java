@@ -7,6 +7,8 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.Vec3;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Executes smooth paths with sub-block precision.
@@ -49,6 +51,66 @@ public class SmoothMovementExecutor {
         }
     }
 
+    /**
+     * Switch to a path that continues the one being walked, e.g. the full path after its
+     * prefix. Stuck detection carries on; walking resumes towards the new path's waypoint
+     * nearest the entity.
+     *
+     * @param path     the new path, starting where the walked one started
+     * @param position current entity position
+     */
+    public void extendPath(SmoothPath path, Vec3 position) {
+        if (currentPath == null || path == null || path.length() <= 1) {
+            setPath(path);
+            return;
+        }
+        currentPath = path;
+        finished = false;
+        failed = false;
+        currentWaypointIndex = resumeIndex(path, position, 0);
+    }
+
+    /**
+     * Replace the path after a waypoint with a tail searched from that waypoint.
+     * Progress and stuck detection carry on; only if the entity already walked past the
+     * waypoint does walking resume at the tail's waypoint nearest it.
+     *
+     * @param atIndex  index of the waypoint the tail starts at
+     * @param tail     the new tail, its first waypoint at the spliced waypoint
+     * @param position current entity position
+     */
+    public void splicePath(int atIndex, SmoothPath tail, Vec3 position) {
+        if (currentPath == null || tail == null || tail.length() <= 1 || atIndex >= currentPath.length()) {
+            setPath(tail);
+            return;
+        }
+        List<Vec3> waypoints = new ArrayList<>(currentPath.getWaypoints().subList(0, atIndex));
+        waypoints.addAll(tail.getWaypoints());
+        currentPath = new SmoothPath(waypoints, tail.getGoal(), tail.getTotalCost(), tail.isComplete());
+        finished = false;
+        failed = false;
+        if (currentWaypointIndex >= atIndex) {
+            currentWaypointIndex = resumeIndex(currentPath, position, atIndex);
+        }
+    }
+
+    /**
+     * Get the waypoint index to resume a path at: heading for the waypoint nearest the
+     * entity itself rather than past it, so no corner is cut.
+     */
+    private static int resumeIndex(SmoothPath path, Vec3 position, int from) {
+        int nearest = from;
+        double nearestDistSq = Double.MAX_VALUE;
+        for (int i = from; i < path.length(); i++) {
+            double distSq = path.getWaypoint(i).distanceToSqr(position);
+            if (distSq < nearestDistSq) {
+                nearestDistSq = distSq;
+                nearest = i;
+            }
+        }
+        return Math.min(Math.max(0, nearest - 1), path.length() - 2);
+    }
+
     /**
      * Reset the executor state.
      */
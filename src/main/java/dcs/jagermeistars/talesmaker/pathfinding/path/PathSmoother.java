@@ -3,8 +3,10 @@ package dcs.jagermeistars.talesmaker.pathfinding.path;
 import dcs.jagermeistars.talesmaker.pathfinding.context.WorldContext;
 import dcs.jagermeistars.talesmaker.pathfinding.config.PathingConfig;
 import dcs.jagermeistars.talesmaker.pathfinding.movement.PassageAnalyzer;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.util.Mth;
 import net.minecraft.world.level.block.DoorBlock;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.Vec3;
@@ -68,6 +70,27 @@ public final class PathSmoother {
         return new SmoothPath(smoothed, path.getGoal(), path.getTotalCost(), path.isComplete());
     }
 
+    /**
+     * Build the smoothed form of a path from its corners, e.g. the parent chain of an
+     * any-angle search, where every straight stretch is already known to be clear.
+     *
+     * @param path    the block path the corners belong to
+     * @param corners the path's turning points, start and end included
+     * @param context world context
+     * @param config  pathing config
+     * @return smoothed path with a centered waypoint per corner
+     */
+    public static SmoothPath fromCorners(IPath path, List<BlockPos> corners,
+                                         WorldContext context, PathingConfig config) {
+        List<Vec3> waypoints = new ArrayList<>(corners.size());
+        BlockPos prevPos = null;
+        for (BlockPos corner : corners) {
+            waypoints.add(calculateWaypointPosition(corner, prevPos, context, config));
+            prevPos = corner;
+        }
+        return new SmoothPath(waypoints, path.getGoal(), path.getTotalCost(), path.isComplete());
+    }
+
     /**
      * Calculate waypoint position with proper centering for wide NPCs.
      * Uses PassageAnalyzer to find optimal position in passages.
@@ -154,6 +177,7 @@ public final class PathSmoother {
     /**
      * Find distance to nearest wall in given direction.
      * Returns the offset where a wall (solid block) is found.
+     * Reads the context's memoized wall layer, so repeated scans over the same cells are cheap.
      *
      * @param pos starting position
      * @param axis axis to search along
@@ -164,59 +188,27 @@ public final class PathSmoother {
      */
     private static int findWallDistance(BlockPos pos, Direction.Axis axis, int direction,
                                         float entityHeight, WorldContext context) {
+        // A wall is any block that blocks horizontal movement at ANY height level
+        if (entityHeight == context.getConfig().getEntityHeight()) {
+            return context.findWallDistance(pos.getX(), pos.getY(), pos.getZ(),
+                    axis == Direction.Axis.X, direction, 10);
+        }
+
+        int fullBlocks = (int) Math.ceil(entityHeight);
         for (int i = 1; i <= 10; i++) {
             int offset = i * direction;
-            BlockPos checkPos = offsetByAxis(pos, axis, offset);
-
-            // Check if this position is blocked (wall)
-            // A wall is any block that blocks horizontal movement at ANY height level
-            // This includes bottom slabs, fences, walls, etc.
-            if (isHorizontallyBlocked(checkPos, entityHeight, context)) {
-                return offset;
+            int x = axis == Direction.Axis.X ? pos.getX() + offset : pos.getX();
+            int z = axis == Direction.Axis.Z ? pos.getZ() + offset : pos.getZ();
+            for (int dy = 0; dy < fullBlocks; dy++) {
+                if (context.blocksMotion(x, pos.getY() + dy, z)) {
+                    return offset;
+                }
             }
         }
         // No wall found within range - return far boundary
         return 10 * direction;
     }
 
-    /**
-     * Check if a position is blocked for horizontal movement.
-     * Unlike hasHeadroom which checks vertical space, this checks if ANY solid
-     * block would prevent horizontal passage (including bottom slabs, fences, etc.)
-     */
-    private static boolean isHorizontallyBlocked(BlockPos pos, float entityHeight, WorldContext context) {
-        int fullBlocks = (int) Math.ceil(entityHeight);
-
-        // Check all blocks from feet to head level
-        for (int dy = 0; dy < fullBlocks; dy++) {
-            BlockState state = context.getBlockState(pos.getX(), pos.getY() + dy, pos.getZ());
-
-            // Air is never blocked
-            if (state.isAir()) {
-                continue;
-            }
-
-            // If block has any collision (blocksMotion), it's a wall
-            // This catches slabs, fences, walls, etc.
-            if (state.blocksMotion()) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Helper method to offset a BlockPos along a specific axis.
-     */
-    private static BlockPos offsetByAxis(BlockPos pos, Direction.Axis axis, int offset) {
-        return switch (axis) {
-            case X -> pos.offset(offset, 0, 0);
-            case Y -> pos.offset(0, offset, 0);
-            case Z -> pos.offset(0, 0, offset);
-        };
-    }
-
     /**
      * Smooth a short path (2 or fewer positions) with proper centering for wide NPCs.
      */
@@ -268,11 +260,20 @@ public final class PathSmoother {
      */
     private static boolean hasLineOfSight(BlockPos from, BlockPos to,
                                           WorldContext context, PathingConfig config) {
+        return hasLineOfSight(from.getX(), from.getY(), from.getZ(), to.getX(), to.getZ(), context, config);
+    }
+
+    /**
+     * Check if there's a clear line of sight between two positions on the same Y level.
+     * The cells checked for narrow entities are {@code from + round(step * i)}.
+     */
+    public static boolean hasLineOfSight(int fromX, int y, int fromZ, int toX, int toZ,
+                                         WorldContext context, PathingConfig config) {
         float width = config.getEntityWidth();
         float height = config.getEntityHeight();
 
-        int dx = to.getX() - from.getX();
-        int dz = to.getZ() - from.getZ();
+        int dx = toX - fromX;
+        int dz = toZ - fromZ;
 
         // For wide entities, don't allow diagonal smoothing at all
         // This prevents corner clipping issues
@@ -288,9 +289,9 @@ public final class PathSmoother {
 
             for (int ix = 0; ix <= absX; ix++) {
                 for (int iz = 0; iz <= absZ; iz++) {
-                    int checkX = from.getX() + ix * signX;
-                    int checkZ = from.getZ() + iz * signZ;
-                    int checkY = from.getY();
+                    int checkX = fromX + ix * signX;
+                    int checkZ = fromZ + iz * signZ;
+                    int checkY = y;
 
                     if (!canEntityStandAt(checkX, checkY, checkZ, width, height, context)) {
                         return false;
@@ -308,9 +309,9 @@ public final class PathSmoother {
 
         // Check each position along the line
         for (int i = 0; i <= steps; i++) {
-            int checkX = from.getX() + (int) Math.round(stepX * i);
-            int checkZ = from.getZ() + (int) Math.round(stepZ * i);
-            int checkY = from.getY();
+            int checkX = fromX + (int) Math.round(stepX * i);
+            int checkZ = fromZ + (int) Math.round(stepZ * i);
+            int checkY = y;
 
             // Check if entity can stand here
             if (!canEntityStandAt(checkX, checkY, checkZ, width, height, context)) {
@@ -321,11 +322,62 @@ public final class PathSmoother {
         return true;
     }
 
+    /**
+     * Get the cells a smoothed path's segments cross, stepped as {@link #hasLineOfSight}
+     * steps them (the whole rectangle for a wide entity's diagonal), on every Y level
+     * between a segment's ends.
+     *
+     * @return packed {@link BlockPos#asLong} positions
+     */
+    public static LongOpenHashSet crossedCells(SmoothPath path, PathingConfig config) {
+        LongOpenHashSet cells = new LongOpenHashSet();
+        List<Vec3> waypoints = path.getWaypoints();
+        for (int i = 0; i + 1 < waypoints.size(); i++) {
+            Vec3 from = waypoints.get(i);
+            Vec3 to = waypoints.get(i + 1);
+            int fromX = Mth.floor(from.x);
+            int fromZ = Mth.floor(from.z);
+            int toX = Mth.floor(to.x);
+            int toZ = Mth.floor(to.z);
+            int minY = Mth.floor(Math.min(from.y, to.y));
+            int maxY = Mth.floor(Math.max(from.y, to.y));
+            for (int y = minY; y <= maxY; y++) {
+                addSegmentCells(cells, fromX, y, fromZ, toX, toZ, config.getEntityWidth());
+            }
+        }
+        return cells;
+    }
+
+    private static void addSegmentCells(LongOpenHashSet cells, int fromX, int y, int fromZ, int toX, int toZ,
+                                        float width) {
+        int dx = toX - fromX;
+        int dz = toZ - fromZ;
+        if (width > 1.0f && dx != 0 && dz != 0) {
+            for (int x = Math.min(fromX, toX); x <= Math.max(fromX, toX); x++) {
+                for (int z = Math.min(fromZ, toZ); z <= Math.max(fromZ, toZ); z++) {
+                    cells.add(BlockPos.asLong(x, y, z));
+                }
+            }
+            return;
+        }
+        int steps = Math.max(Math.abs(dx), Math.abs(dz));
+        double stepX = steps == 0 ? 0 : (double) dx / steps;
+        double stepZ = steps == 0 ? 0 : (double) dz / steps;
+        for (int i = 0; i <= steps; i++) {
+            cells.add(BlockPos.asLong(fromX + (int) Math.round(stepX * i), y, fromZ + (int) Math.round(stepZ * i)));
+        }
+    }
+
     /**
      * Check if an entity can stand at a position considering dimensions.
      */
     private static boolean canEntityStandAt(int x, int y, int z, float width, float height,
                                             WorldContext context) {
+        // Our own entity size is memoized in the context's standable layer
+        if (width == context.getConfig().getEntityWidth() && height == context.getConfig().getEntityHeight()) {
+            return context.canStandAt(x, y, z);
+        }
+
         // Use WorldContext's footprint check which handles width correctly
         if (width > 1.0f) {
             return context.hasFootprint(x, y, z, width, height);
@@ -0,0 +1,27 @@
+package dcs.jagermeistars.talesmaker.pathfinding.path;
+
+import dcs.jagermeistars.talesmaker.pathfinding.goals.Goal;
+import net.minecraft.core.BlockPos;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * First leg of a long-range route: a fine path to the next route waypoint.
+ * Incomplete by design - the caller requests the next leg once it has been walked.
+ */
+public class RouteLegPath extends CutoffPath {
+
+    public RouteLegPath(List<BlockPos> positions, Goal goal, double totalCost) {
+        super(positions, Collections.emptyList(), goal, totalCost);
+    }
+
+    @Override
+    public String toString() {
+        return "RouteLegPath{" +
+                "length=" + length() +
+                ", cost=" + String.format("%.2f", getTotalCost()) +
+                ", to=" + (getDest() != null ? getDest().toShortString() : "null") +
+                '}';
+    }
+}
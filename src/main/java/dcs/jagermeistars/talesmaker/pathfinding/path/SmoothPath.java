@@ -84,6 +84,18 @@ public class SmoothPath {
         return new SmoothPath(waypoints, path.getGoal(), path.getTotalCost(), path.isComplete());
     }
 
+    /**
+     * Create a copy ending exactly at a position instead of the last waypoint.
+     */
+    public SmoothPath withLastWaypoint(Vec3 exactTarget) {
+        if (waypoints.isEmpty()) {
+            return this;
+        }
+        List<Vec3> newWaypoints = new ArrayList<>(waypoints);
+        newWaypoints.set(newWaypoints.size() - 1, exactTarget);
+        return new SmoothPath(newWaypoints, goal, totalCost, complete);
+    }
+
     /**
      * Get all waypoints.
      */